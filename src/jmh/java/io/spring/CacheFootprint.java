@@ -0,0 +1,128 @@
+package io.spring;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1DeploymentCondition;
+import io.kubernetes.client.openapi.models.V1DeploymentStatus;
+import io.kubernetes.client.openapi.models.V1ManagedFieldsEntry;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooStatus;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * how much heap each cached object takes, as the API server sends it and after
+ * {@link CacheTransforms}. every object is parsed from its own copy of the JSON, the way
+ * the informer gets them, so nothing is shared between them that wouldn't be shared in a
+ * real cache. the objects carry {@code managedFields} and, for the Foo, the annotation
+ * {@code kubectl apply} leaves behind.
+ * <p>
+ * not a JMH benchmark, but it lives here because it needs the same fixtures:
+ * {@code ./gradlew cacheFootprint [-Pobjects=1000]}.
+ */
+public final class CacheFootprint {
+
+	private CacheFootprint() {
+	}
+
+	public static void main(String[] args) {
+		var count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		var apiClient = Fixtures.stubApiClient();
+		var json = apiClient.getJSON();
+		var reconciler = Fixtures.reconciler(apiClient, Fixtures.templateCache(apiClient),
+				Fixtures.informer(V1Foo.class), Fixtures.informer(V1ConfigMap.class),
+				Fixtures.informer(V1Deployment.class));
+
+		var foo = Fixtures.foo("default", "demo")
+				.status(new V1FooStatus().observedGeneration(1L).contentHash("0123456789abcdef0123456789abcdef"));
+		foo.getMetadata().creationTimestamp(OffsetDateTime.now()).putAnnotationsItem(
+				CacheTransforms.LAST_APPLIED_ANNOTATION, json.serialize(foo));
+		foo.getMetadata().managedFields(List.of( //
+				managedFields(json, "kubectl-client-side-apply", null, foo), //
+				managedFields(json, "foo-controller", "status", foo)));
+
+		var configMap = reconciler.renderConfigMap(foo, "configmap-demo");
+		configMap.getMetadata().uid("5678").resourceVersion("2").creationTimestamp(OffsetDateTime.now())
+				.managedFields(List.of(managedFields(json, "foo-controller", null, configMap)));
+
+		var deployment = reconciler.renderDeployment(foo, "deployment-demo", "configmap-demo",
+				"0123456789abcdef0123456789abcdef");
+		deployment.getMetadata().uid("9abc").resourceVersion("3").generation(1L)
+				.creationTimestamp(OffsetDateTime.now()).putAnnotationsItem("deployment.kubernetes.io/revision", "1");
+		var deploymentManagedFields = managedFields(json, "foo-controller", null, deployment);
+		deployment.status(new V1DeploymentStatus().observedGeneration(1L).replicas(2).readyReplicas(2)
+				.availableReplicas(2).updatedReplicas(2).conditions(List.of( //
+						condition("Available", "MinimumReplicasAvailable", "Deployment has minimum availability."),
+						condition("Progressing", "NewReplicaSetAvailable",
+								"ReplicaSet \"deployment-demo-5d59d67564\" has successfully progressed."))));
+		deployment.getMetadata().managedFields(List.of(deploymentManagedFields,
+				managedFields(json, "kube-controller-manager", "status", deployment)));
+
+		System.out.println(count + " objects of each kind");
+		report("Foo", json, json.serialize(foo), V1Foo.class, count, CacheTransforms::foo);
+		report("ConfigMap", json, json.serialize(configMap), V1ConfigMap.class, count, CacheTransforms::owned);
+		report("Deployment", json, json.serialize(deployment), V1Deployment.class, count,
+				CacheTransforms::deployment);
+	}
+
+	private static <T> void report(String kind, JSON json, String served, Class<T> type, int count,
+			UnaryOperator<T> transform) {
+		var objects = new ArrayList<T>(count);
+		for (var i = 0; i < count; i++) {
+			objects.add(json.deserialize(served, type));
+		}
+		var before = GraphLayout.parseInstance(objects).totalSize();
+		objects.replaceAll(transform);
+		var after = GraphLayout.parseInstance(objects).totalSize();
+		System.out.printf("%-10s %6d bytes/object as served, %6d cached (%d%% less)%n", kind, before / count,
+				after / count, 100 - after * 100 / before);
+	}
+
+	// roughly what the API server records: every field that was set, in the fieldsV1 format
+	private static V1ManagedFieldsEntry managedFields(JSON json, String manager, String subresource, Object object) {
+		var tree = json.getGson().toJsonTree(object).getAsJsonObject();
+		tree.remove("apiVersion");
+		tree.remove("kind");
+		var metadata = tree.getAsJsonObject("metadata");
+		if (metadata != null) {
+			for (var generated : List.of("uid", "resourceVersion", "generation", "creationTimestamp", "name",
+					"namespace", "managedFields")) {
+				metadata.remove(generated);
+			}
+		}
+		if ("status".equals(subresource)) {
+			tree.keySet().removeIf(key -> !"status".equals(key));
+		}
+		else {
+			tree.remove("status");
+		}
+		return new V1ManagedFieldsEntry().manager(manager).operation("Update").apiVersion("v1")
+				.fieldsType("FieldsV1").subresource(subresource).time(OffsetDateTime.now())
+				.fieldsV1(json.getGson().fromJson(fieldsV1(tree), HashMap.class));
+	}
+
+	private static JsonElement fieldsV1(JsonElement element) {
+		var fields = new JsonObject();
+		if (element.isJsonObject()) {
+			fields.add(".", new JsonObject());
+			for (var entry : element.getAsJsonObject().entrySet()) {
+				fields.add("f:" + entry.getKey(), fieldsV1(entry.getValue()));
+			}
+		}
+		return fields;
+	}
+
+	private static V1DeploymentCondition condition(String type, String reason, String message) {
+		return new V1DeploymentCondition().type(type).status("True").reason(reason).message(message)
+				.lastTransitionTime(OffsetDateTime.now()).lastUpdateTime(OffsetDateTime.now());
+	}
+
+}
@@ -0,0 +1,88 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.impl.DefaultSharedIndexInformer;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1DeploymentList;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watchable;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooSpec;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.UUID;
+
+/**
+ * everything a {@link FooReconciler} needs, minus a cluster: informers whose caches we
+ * fill by hand and an {@link ApiClient} that talks to a {@link StubApiInterceptor}.
+ */
+final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	static ApiClient stubApiClient() {
+		var apiClient = new ApiClient();
+		FooTypeAdapters.register(apiClient.getJSON());
+		return apiClient.setHttpClient(apiClient.getHttpClient().newBuilder() //
+				.addInterceptor(new StubApiInterceptor()) //
+				.build());
+	}
+
+	static TemplateCache templateCache(ApiClient apiClient) {
+		return new TemplateCache(apiClient.getJSON()) //
+				.register(V1ConfigMap.class, new ClassPathResource("configmap.yaml")) //
+				.register(V1Deployment.class, new ClassPathResource("deployment.yaml"));
+	}
+
+	/**
+	 * an informer that is never started: its indexer is just a cache we fill ourselves.
+	 */
+	static <T extends KubernetesObject> SharedIndexInformer<T> informer(Class<T> type) {
+		return new DefaultSharedIndexInformer<>(type, new ListerWatcher<T, KubernetesListObject>() {
+
+			@Override
+			public KubernetesListObject list(CallGeneratorParams params) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public Watchable<T> watch(CallGeneratorParams params) {
+				throw new UnsupportedOperationException();
+			}
+
+		}, 0);
+	}
+
+	static FooReconciler reconciler(ApiClient apiClient, TemplateCache templateCache, SharedIndexInformer<V1Foo> foos,
+			SharedIndexInformer<V1ConfigMap> configMaps, SharedIndexInformer<V1Deployment> deployments) {
+		return new FooReconciler(templateCache, foos, configMaps, deployments, new AppsV1Api(apiClient),
+				new CoreV1Api(apiClient),
+				new GenericKubernetesApi<>(V1Foo.class, V1FooList.class, "spring.io", "v1", "foos", apiClient),
+				new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1", "configmaps",
+						apiClient),
+				new GenericKubernetesApi<>(V1Deployment.class, V1DeploymentList.class, "apps", "v1", "deployments",
+						apiClient),
+				apiClient.getJSON(), new FooControllerProperties(), new ReconcileMetrics(new SimpleMeterRegistry()));
+	}
+
+	static V1Foo foo(String namespace, String name) {
+		return new V1Foo().apiVersion("spring.io/v1").kind("Foo") //
+				.metadata(new V1ObjectMeta().namespace(namespace).name(name).uid(UUID.randomUUID().toString())
+						.generation(1L).resourceVersion("1")) //
+				.spec(new V1FooSpec().name("SpringOne Tour " + name));
+	}
+
+}
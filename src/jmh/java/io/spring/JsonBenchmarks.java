@@ -0,0 +1,89 @@
+package io.spring;
+
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.util.Watch;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+
+/**
+ * (de)serialization of our own types, which is what every list, watch event and status
+ * update pays for, through Gson's reflective adapters and through {@link FooTypeAdapters}.
+ * run with {@code -prof gc} for the allocation per operation.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmarks {
+
+	private static final Type FOO_WATCH_EVENT = new TypeToken<Watch.Response<V1Foo>>() {
+	}.getType();
+
+	@Param({ "100" })
+	public int listSize;
+
+	@Param({ "reflective", "streaming" })
+	public String codec;
+
+	private JSON json;
+
+	private V1Foo foo;
+
+	private V1FooList fooList;
+
+	private String fooJson;
+
+	private String fooListJson;
+
+	private String fooWatchEventJson;
+
+	@Setup
+	public void setup() {
+		this.json = "streaming".equals(this.codec) ? FooTypeAdapters.register(new JSON()) : new JSON();
+		this.foo = Fixtures.foo("default", "demo").status(new V1FooStatus().observedGeneration(1L)
+				.contentHash("0123456789abcdef0123456789abcdef"));
+		var items = new ArrayList<V1Foo>();
+		for (var i = 0; i < this.listSize; i++) {
+			items.add(Fixtures.foo("default", "demo-" + i));
+		}
+		this.fooList = new V1FooList().apiVersion("spring.io/v1").kind("FooList")
+				.metadata(new V1ListMeta().resourceVersion("42")).items(items);
+		this.fooJson = this.json.serialize(this.foo);
+		this.fooListJson = this.json.serialize(this.fooList);
+		this.fooWatchEventJson = "{\"type\":\"MODIFIED\",\"object\":" + this.fooJson + "}";
+	}
+
+	@Benchmark
+	public String serializeFoo() {
+		return this.json.serialize(this.foo);
+	}
+
+	@Benchmark
+	public V1Foo deserializeFoo() {
+		return this.json.deserialize(this.fooJson, V1Foo.class);
+	}
+
+	@Benchmark
+	public String serializeFooList() {
+		return this.json.serialize(this.fooList);
+	}
+
+	@Benchmark
+	public V1FooList deserializeFooList() {
+		return this.json.deserialize(this.fooListJson, V1FooList.class);
+	}
+
+	@Benchmark
+	public Watch.Response<V1Foo> deserializeFooWatchEvent() {
+		return this.json.deserialize(this.fooWatchEventJson, FOO_WATCH_EVENT);
+	}
+
+}
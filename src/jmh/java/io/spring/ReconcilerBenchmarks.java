@@ -0,0 +1,77 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * one full trip through {@link FooReconciler#reconcile(Request)} against the stub API.
+ * <ul>
+ * <li>{@code steady}: everything is already reconciled, the resync case.</li>
+ * <li>{@code drift}: the cached {@code ConfigMap}'s content and {@code Deployment}'s image
+ * differ from what we render, so both get replaced and the status is written.</li>
+ * <li>{@code create}: nothing exists yet, so both get created and the status is
+ * written.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class ReconcilerBenchmarks {
+
+	@Param({ "steady", "drift", "create" })
+	public String scenario;
+
+	private final Request request = new Request("default", "demo");
+
+	private FooReconciler reconciler;
+
+	@Setup
+	public void setup() {
+		var apiClient = Fixtures.stubApiClient();
+		var foos = Fixtures.informer(V1Foo.class);
+		var configMaps = Fixtures.informer(V1ConfigMap.class);
+		var deployments = Fixtures.informer(V1Deployment.class);
+		this.reconciler = Fixtures.reconciler(apiClient, Fixtures.templateCache(apiClient), foos, configMaps,
+				deployments);
+
+		var foo = Fixtures.foo("default", "demo");
+		var configMap = this.reconciler.renderConfigMap(foo, "configmap-demo");
+		var contentHash = ContentHash.of(configMap.getData(), foo.getSpec());
+		var deployment = this.reconciler.renderDeployment(foo, "deployment-demo", "configmap-demo", contentHash);
+		configMap.getMetadata().setResourceVersion("1");
+		deployment.getMetadata().setResourceVersion("1");
+		switch (this.scenario) {
+			case "steady" -> {
+				foo.status(new V1FooStatus().observedGeneration(1L).contentHash(contentHash));
+				configMaps.getIndexer().add(configMap);
+				deployments.getIndexer().add(deployment);
+			}
+			case "drift" -> {
+				configMap.getData().put("index.html", "<h1> stale </h1>");
+				// not the replica count: we leave that to whoever scales the Deployment
+				deployment.getSpec().getTemplate().getSpec().getContainers().get(0).setImage("nginx:stale");
+				configMaps.getIndexer().add(configMap);
+				deployments.getIndexer().add(deployment);
+			}
+			case "create" -> {
+			}
+			default -> throw new IllegalArgumentException(this.scenario);
+		}
+		foos.getIndexer().add(foo);
+		// the first reconcile of the steady state is a full one, every one after it is not
+		this.reconciler.reconcile(this.request);
+	}
+
+	@Benchmark
+	public Result reconcile() {
+		return this.reconciler.reconcile(this.request);
+	}
+
+}
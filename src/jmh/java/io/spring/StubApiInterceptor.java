@@ -0,0 +1,42 @@
+package io.spring;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * answers every request without going anywhere near the network: writes echo their body
+ * back (as the API server would, give or take defaulting), and reads find nothing. this
+ * keeps the client-side cost of a call (serialization, OkHttp, deserialization) in the
+ * numbers while taking the API server out of them.
+ */
+class StubApiInterceptor implements Interceptor {
+
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+	private static final byte[] NOT_FOUND = """
+			{"kind": "Status", "apiVersion": "v1", "status": "Failure", "reason": "NotFound", "code": 404}
+			""".getBytes(StandardCharsets.UTF_8);
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		var request = chain.request();
+		var response = new Response.Builder().request(request).protocol(Protocol.HTTP_1_1);
+		if (request.body() == null) {
+			return response.code(404).message("Not Found").body(ResponseBody.create(NOT_FOUND, JSON)).build();
+		}
+		var buffer = new Buffer();
+		request.body().writeTo(buffer);
+		return response.code("POST".equals(request.method()) ? 201 : 200) //
+				.message("OK") //
+				.body(ResponseBody.create(buffer.readByteArray(), JSON)) //
+				.build();
+	}
+
+}
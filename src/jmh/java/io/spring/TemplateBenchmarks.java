@@ -0,0 +1,70 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.Yaml;
+import io.spring.models.V1Foo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * what it costs to get from a {@code V1Foo} to the objects we write for it.
+ * {@code loadYamlAs} is how every reconcile used to start, {@code templateCacheCopyOf} is
+ * what replaced it.
+ */
+@State(Scope.Benchmark)
+public class TemplateBenchmarks {
+
+	private final Resource deploymentYaml = new ClassPathResource("deployment.yaml");
+
+	private TemplateCache templateCache;
+
+	private FooReconciler reconciler;
+
+	private V1Foo foo;
+
+	@Setup
+	public void setup() {
+		var apiClient = Fixtures.stubApiClient();
+		this.templateCache = Fixtures.templateCache(apiClient);
+		this.reconciler = Fixtures.reconciler(apiClient, this.templateCache, Fixtures.informer(V1Foo.class),
+				Fixtures.informer(V1ConfigMap.class), Fixtures.informer(V1Deployment.class));
+		this.foo = Fixtures.foo("default", "demo");
+	}
+
+	@Benchmark
+	public V1Deployment loadYamlAs() throws IOException {
+		var yaml = FileCopyUtils.copyToString(new InputStreamReader(this.deploymentYaml.getInputStream()));
+		return Yaml.loadAs(yaml, V1Deployment.class);
+	}
+
+	@Benchmark
+	public V1Deployment templateCacheCopyOf() {
+		return this.templateCache.copyOf(V1Deployment.class);
+	}
+
+	@Benchmark
+	public V1ConfigMap renderConfigMap() {
+		return this.reconciler.renderConfigMap(this.foo, "configmap-demo");
+	}
+
+	@Benchmark
+	public V1Deployment renderDeployment() {
+		return this.reconciler.renderDeployment(this.foo, "deployment-demo", "configmap-demo", "0123456789abcdef");
+	}
+
+	@Benchmark
+	public V1ObjectMeta addOwnerReference() {
+		return FooReconciler.own(new V1ObjectMeta().name("configmap-demo"), this.foo);
+	}
+
+}
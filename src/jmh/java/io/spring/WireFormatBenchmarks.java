@@ -0,0 +1,181 @@
+package io.spring;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1OwnerReference;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.Runtime;
+import io.kubernetes.client.proto.V1;
+import io.kubernetes.client.proto.V1Coordination;
+import io.spring.models.V1Foo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * decoding a LIST response of built-in objects, as JSON and as the API server's protobuf,
+ * into the models the caches hold: the JSON path is what the client does with a response
+ * body, the protobuf one what {@link ProtobufLister} does. both start from the bytes on
+ * the wire, and the sizes of those are printed at setup.
+ */
+@State(Scope.Benchmark)
+public class WireFormatBenchmarks {
+
+	private static final byte[] PROTOBUF_MAGIC = { 'k', '8', 's', 0 };
+
+	@Param({ "100" })
+	public int listSize;
+
+	private final JSON json = new JSON();
+
+	private byte[] configMapListJson;
+
+	private byte[] configMapListProtobuf;
+
+	private byte[] leaseListJson;
+
+	private byte[] leaseListProtobuf;
+
+	@Setup
+	public void setup() {
+		var apiClient = Fixtures.stubApiClient();
+		var reconciler = Fixtures.reconciler(apiClient, Fixtures.templateCache(apiClient),
+				Fixtures.informer(V1Foo.class), Fixtures.informer(V1ConfigMap.class),
+				Fixtures.informer(V1Deployment.class));
+		// whole seconds, the way the API server keeps them
+		var now = OffsetDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+		var configMaps = new ArrayList<V1ConfigMap>();
+		var leases = new ArrayList<V1Lease>();
+		for (var i = 0; i < this.listSize; i++) {
+			var foo = Fixtures.foo("default", "demo-" + i);
+			var configMap = reconciler.renderConfigMap(foo, "configmap-demo-" + i);
+			configMap.getMetadata().uid(UUID.randomUUID().toString()).resourceVersion(Integer.toString(1000 + i))
+					.creationTimestamp(now);
+			configMaps.add(configMap);
+			leases.add(new V1Lease()
+					.metadata(new V1ObjectMeta().namespace("default").name("foo-controller-shard-" + i)
+							.uid(UUID.randomUUID().toString()).resourceVersion(Integer.toString(2000 + i))
+							.creationTimestamp(now).putLabelsItem(Sharding.MEMBER_LABEL, "true"))
+					.spec(new V1LeaseSpec().holderIdentity("foo-controller-" + i).leaseDurationSeconds(15)
+							.acquireTime(now).renewTime(now).leaseTransitions(0)));
+		}
+		var listMeta = new V1ListMeta().resourceVersion("4242");
+
+		this.configMapListJson = this.json.serialize(new V1ConfigMapList().apiVersion("v1").kind("ConfigMapList")
+				.metadata(listMeta).items(configMaps)).getBytes(StandardCharsets.UTF_8);
+		var configMapList = V1.ConfigMapList.newBuilder().setMetadata(listMeta(listMeta));
+		configMaps.forEach(configMap -> configMapList.addItems(V1.ConfigMap.newBuilder()
+				.setMetadata(objectMeta(configMap.getMetadata())).putAllData(configMap.getData())));
+		this.configMapListProtobuf = envelope("v1", "ConfigMapList", configMapList.build().toByteString());
+
+		this.leaseListJson = this.json.serialize(new V1LeaseList().apiVersion("coordination.k8s.io/v1")
+				.kind("LeaseList").metadata(listMeta).items(leases)).getBytes(StandardCharsets.UTF_8);
+		var leaseList = V1Coordination.LeaseList.newBuilder().setMetadata(listMeta(listMeta));
+		leases.forEach(lease -> leaseList.addItems(V1Coordination.Lease.newBuilder()
+				.setMetadata(objectMeta(lease.getMetadata()))
+				.setSpec(V1Coordination.LeaseSpec.newBuilder().setHolderIdentity(lease.getSpec().getHolderIdentity())
+						.setLeaseDurationSeconds(lease.getSpec().getLeaseDurationSeconds())
+						.setAcquireTime(microTime(lease.getSpec().getAcquireTime()))
+						.setRenewTime(microTime(lease.getSpec().getRenewTime()))
+						.setLeaseTransitions(lease.getSpec().getLeaseTransitions()))));
+		this.leaseListProtobuf = envelope("coordination.k8s.io/v1", "LeaseList", leaseList.build().toByteString());
+
+		System.out.printf("%n%d ConfigMaps: %d bytes as JSON, %d as protobuf%n", this.listSize,
+				this.configMapListJson.length, this.configMapListProtobuf.length);
+		System.out.printf("%d Leases: %d bytes as JSON, %d as protobuf%n", this.listSize, this.leaseListJson.length,
+				this.leaseListProtobuf.length);
+	}
+
+	@Benchmark
+	public V1ConfigMapList decodeConfigMapListJson() {
+		return this.json.deserialize(new String(this.configMapListJson, StandardCharsets.UTF_8),
+				V1ConfigMapList.class);
+	}
+
+	@Benchmark
+	public V1ConfigMapList decodeConfigMapListProtobuf() throws InvalidProtocolBufferException {
+		return ProtobufLister.configMapList(V1.ConfigMapList.parseFrom(unwrap(this.configMapListProtobuf)));
+	}
+
+	@Benchmark
+	public V1LeaseList decodeLeaseListJson() {
+		return this.json.deserialize(new String(this.leaseListJson, StandardCharsets.UTF_8), V1LeaseList.class);
+	}
+
+	@Benchmark
+	public V1LeaseList decodeLeaseListProtobuf() throws InvalidProtocolBufferException {
+		return ProtobufLister.leaseList(V1Coordination.LeaseList.parseFrom(unwrap(this.leaseListProtobuf)));
+	}
+
+	// the API server wraps every protobuf response in a magic number and a runtime.Unknown
+	private static byte[] envelope(String apiVersion, String kind, ByteString raw) {
+		var unknown = Runtime.Unknown.newBuilder()
+				.setTypeMeta(Runtime.TypeMeta.newBuilder().setApiVersion(apiVersion).setKind(kind)).setRaw(raw)
+				.setContentType("application/vnd.kubernetes.protobuf").build().toByteArray();
+		var bytes = Arrays.copyOf(PROTOBUF_MAGIC, PROTOBUF_MAGIC.length + unknown.length);
+		System.arraycopy(unknown, 0, bytes, PROTOBUF_MAGIC.length, unknown.length);
+		return bytes;
+	}
+
+	private static ByteString unwrap(byte[] bytes) throws InvalidProtocolBufferException {
+		return Runtime.Unknown
+				.parseFrom(ByteString.copyFrom(bytes, PROTOBUF_MAGIC.length, bytes.length - PROTOBUF_MAGIC.length))
+				.getRaw();
+	}
+
+	private static Meta.ListMeta listMeta(V1ListMeta listMeta) {
+		return Meta.ListMeta.newBuilder().setResourceVersion(listMeta.getResourceVersion()).build();
+	}
+
+	private static Meta.ObjectMeta objectMeta(V1ObjectMeta metadata) {
+		var builder = Meta.ObjectMeta.newBuilder().setNamespace(metadata.getNamespace()).setName(metadata.getName())
+				.setUid(metadata.getUid()).setResourceVersion(metadata.getResourceVersion()).setCreationTimestamp(
+						Meta.Time.newBuilder().setSeconds(metadata.getCreationTimestamp().toEpochSecond()));
+		if (metadata.getLabels() != null) {
+			builder.putAllLabels(metadata.getLabels());
+		}
+		if (metadata.getAnnotations() != null) {
+			builder.putAllAnnotations(metadata.getAnnotations());
+		}
+		List<V1OwnerReference> ownerReferences = metadata.getOwnerReferences() != null
+				? metadata.getOwnerReferences() : List.of();
+		for (var ownerReference : ownerReferences) {
+			var owner = Meta.OwnerReference.newBuilder().setApiVersion(ownerReference.getApiVersion())
+					.setKind(ownerReference.getKind()).setName(ownerReference.getName())
+					.setUid(ownerReference.getUid());
+			if (ownerReference.getController() != null) {
+				owner.setController(ownerReference.getController());
+			}
+			if (ownerReference.getBlockOwnerDeletion() != null) {
+				owner.setBlockOwnerDeletion(ownerReference.getBlockOwnerDeletion());
+			}
+			builder.addOwnerReferences(owner);
+		}
+		return builder.build();
+	}
+
+	private static Meta.MicroTime microTime(OffsetDateTime time) {
+		return Meta.MicroTime.newBuilder().setSeconds(time.toEpochSecond()).setNanos(time.getNano()).build();
+	}
+
+}
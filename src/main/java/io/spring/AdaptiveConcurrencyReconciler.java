@@ -0,0 +1,229 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Reconciler;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.extended.workqueue.RateLimitingQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * caps how many reconciles run at once. the controller starts as many worker threads as
+ * we could ever want, and this decides how many of them actually get to talk to the API
+ * server. a worker needs a permit before it may take a key off {@link #workQueue() the
+ * queue}, and hands it back once it is done with the key: the ones waiting for a permit
+ * hold no key, so what they would have taken still counts as backlog, and the next worker
+ * to get a permit picks it up. in adaptive mode the limit is re-evaluated about once a
+ * second: it grows by one while there is a backlog and reconciles finish within the
+ * target latency, backs off by a quarter when they don't (the API server is telling us it
+ * has had enough), and drifts back down by one while the queue is empty. otherwise the
+ * limit is simply the configured worker count.
+ */
+@Slf4j
+class AdaptiveConcurrencyReconciler implements Reconciler {
+
+	private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static class ResizableSemaphore extends Semaphore {
+
+		ResizableSemaphore(int permits) {
+			super(permits, true);
+		}
+
+		void shrink(int by) {
+			reducePermits(by);
+		}
+
+	}
+
+	private final Reconciler delegate;
+
+	private final RateLimitingQueue<Request> queue;
+
+	private final LongSupplier nanoTime;
+
+	private final boolean adaptive;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final long targetLatencyNanos;
+
+	private final ResizableSemaphore permits;
+
+	private final AtomicInteger limit = new AtomicInteger();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicLong lastAdjusted;
+
+	private final LongAdder completed = new LongAdder();
+
+	private final LongAdder completedNanos = new LongAdder();
+
+	AdaptiveConcurrencyReconciler(Reconciler delegate, RateLimitingQueue<Request> queue,
+			FooControllerProperties.Workers workers, MeterRegistry meterRegistry) {
+		this(delegate, queue, workers, meterRegistry, System::nanoTime);
+	}
+
+	AdaptiveConcurrencyReconciler(Reconciler delegate, RateLimitingQueue<Request> queue,
+			FooControllerProperties.Workers workers, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+		this.delegate = delegate;
+		this.queue = queue;
+		this.nanoTime = nanoTime;
+		this.lastAdjusted = new AtomicLong(nanoTime.getAsLong());
+		this.adaptive = workers.isAdaptive();
+		this.minLimit = this.adaptive ? workers.getMinCount() : workers.getCount();
+		this.maxLimit = this.adaptive ? workers.getMaxCount() : workers.getCount();
+		this.targetLatencyNanos = workers.getTargetLatency().toNanos();
+		this.limit.set(Math.max(this.minLimit, Math.min(this.maxLimit, workers.getCount())));
+		this.permits = new ResizableSemaphore(this.limit.get());
+		Gauge.builder("foo.controller.workers.limit", this.limit, AtomicInteger::get)
+				.description("how many reconciles may run at once").register(meterRegistry);
+		Gauge.builder("foo.controller.workers.active", this.active, AtomicInteger::get)
+				.description("how many reconciles are running right now").register(meterRegistry);
+	}
+
+	/**
+	 * the queue to hand to the controller: the one we were given, except that taking a key
+	 * off it waits for a permit, and being {@code done} with the key returns it.
+	 */
+	RateLimitingQueue<Request> workQueue() {
+		return new RateLimitingQueue<>() {
+
+			@Override
+			public Request get() throws InterruptedException {
+				AdaptiveConcurrencyReconciler.this.permits.acquire();
+				Request request = null;
+				try {
+					request = AdaptiveConcurrencyReconciler.this.queue.get();
+					return request;
+				}
+				finally {
+					if (request == null) { // shutting down, nothing to be done with
+						AdaptiveConcurrencyReconciler.this.permits.release();
+					}
+				}
+			}
+
+			@Override
+			public void done(Request request) {
+				AdaptiveConcurrencyReconciler.this.queue.done(request);
+				AdaptiveConcurrencyReconciler.this.permits.release();
+			}
+
+			@Override
+			public void add(Request request) {
+				AdaptiveConcurrencyReconciler.this.queue.add(request);
+			}
+
+			@Override
+			public void addAfter(Request request, Duration duration) {
+				AdaptiveConcurrencyReconciler.this.queue.addAfter(request, duration);
+			}
+
+			@Override
+			public void addRateLimited(Request request) {
+				AdaptiveConcurrencyReconciler.this.queue.addRateLimited(request);
+			}
+
+			@Override
+			public void forget(Request request) {
+				AdaptiveConcurrencyReconciler.this.queue.forget(request);
+			}
+
+			@Override
+			public int numRequeues(Request request) {
+				return AdaptiveConcurrencyReconciler.this.queue.numRequeues(request);
+			}
+
+			@Override
+			public int length() {
+				return AdaptiveConcurrencyReconciler.this.queue.length();
+			}
+
+			@Override
+			public void shutDown() {
+				AdaptiveConcurrencyReconciler.this.queue.shutDown();
+			}
+
+			@Override
+			public boolean isShuttingDown() {
+				return AdaptiveConcurrencyReconciler.this.queue.isShuttingDown();
+			}
+
+		};
+	}
+
+	/**
+	 * runs with the permit {@link #workQueue()} handed out along with the request.
+	 */
+	@Override
+	public Result reconcile(Request request) {
+		this.active.incrementAndGet();
+		long start = this.nanoTime.getAsLong();
+		try {
+			return this.delegate.reconcile(request);
+		}
+		finally {
+			this.completedNanos.add(this.nanoTime.getAsLong() - start);
+			this.completed.increment();
+			this.active.decrementAndGet();
+			if (this.adaptive) {
+				maybeAdjust();
+			}
+		}
+	}
+
+	int limit() {
+		return this.limit.get();
+	}
+
+	private void maybeAdjust() {
+		long now = this.nanoTime.getAsLong();
+		long last = this.lastAdjusted.get();
+		if (now - last < ADJUST_INTERVAL_NANOS || !this.lastAdjusted.compareAndSet(last, now)) {
+			return;
+		}
+		long count = this.completed.sumThenReset();
+		long averageNanos = count == 0 ? 0 : this.completedNanos.sumThenReset() / count;
+		int backlog = this.queue.length();
+		int current = this.limit.get();
+		int next = current;
+		if (averageNanos > this.targetLatencyNanos) {
+			next = Math.max(this.minLimit, current - Math.max(1, current / 4));
+		}
+		else if (backlog > current) {
+			next = Math.min(this.maxLimit, current + 1);
+		}
+		else if (backlog == 0) {
+			next = Math.max(this.minLimit, current - 1);
+		}
+		if (next != current) {
+			resize(current, next);
+			log.debug("worker limit " + current + " -> " + next + " (backlog " + backlog + ", average reconcile "
+					+ TimeUnit.NANOSECONDS.toMillis(averageNanos) + "ms)");
+		}
+	}
+
+	private void resize(int from, int to) {
+		this.limit.set(to);
+		if (to > from) {
+			this.permits.release(to - from);
+		}
+		else {
+			this.permits.shrink(from - to);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package io.spring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * times every API call in {@code foo.api.requests}, tagged by verb (in Kubernetes terms:
+ * get, list, create, update, patch, delete), resource and response code. watches stay
+ * open for minutes and would only drown out everything else, so they're left alone.
+ */
+class ApiMetricsInterceptor implements Interceptor {
+
+	private final MeterRegistry meterRegistry;
+
+	ApiMetricsInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		var request = chain.request();
+		if ("true".equals(request.url().queryParameter("watch"))) {
+			return chain.proceed(request);
+		}
+		var path = Path.of(request.url());
+		var start = System.nanoTime();
+		var code = "IO_ERROR";
+		try {
+			var response = chain.proceed(request);
+			code = Integer.toString(response.code());
+			return response;
+		}
+		finally {
+			Timer.builder("foo.api.requests") //
+					.description("API server round trips") //
+					.tag("verb", verb(request.method(), path)) //
+					.tag("resource", path.resource()) //
+					.tag("code", code) //
+					.publishPercentileHistogram() //
+					.register(this.meterRegistry) //
+					.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static String verb(String method, Path path) {
+		return switch (method) {
+			case "GET" -> path.named() ? "get" : "list";
+			case "POST" -> "create";
+			case "PUT" -> "update";
+			default -> method.toLowerCase(Locale.ROOT);
+		};
+	}
+
+	/**
+	 * the interesting parts of {@code /api/v1/namespaces/{ns}/configmaps/{name}} or
+	 * {@code /apis/{group}/{version}/namespaces/{ns}/{resource}/{name}/{subresource}}.
+	 * subresources are reported as {@code resource/subresource}.
+	 */
+	record Path(String resource, boolean named) {
+
+		static Path of(HttpUrl url) {
+			List<String> segments = url.pathSegments();
+			int index = !segments.isEmpty() && "apis".equals(segments.get(0)) ? 3 : 2;
+			if (segments.size() > index + 2 && "namespaces".equals(segments.get(index))) {
+				index += 2;
+			}
+			if (segments.size() <= index) {
+				return new Path("unknown", false);
+			}
+			var resource = segments.get(index);
+			if (segments.size() > index + 2) {
+				resource += "/" + segments.get(index + 2);
+			}
+			return new Path(resource, segments.size() > index + 1);
+		}
+
+	}
+
+}
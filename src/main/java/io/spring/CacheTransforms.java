@@ -0,0 +1,66 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.spring.models.V1Foo;
+
+/**
+ * what each informer cache keeps of the objects it is handed. a cached object is only ever
+ * read by the reconciler, and most of what the API server sends is never looked at:
+ * {@code managedFields} and {@code kubectl}'s last-applied-configuration annotation alone
+ * are routinely bigger than the rest of the object.
+ * <ul>
+ * <li>a {@link V1Foo} keeps its identity ({@code name}, {@code namespace}, {@code uid}),
+ * what change detection needs ({@code resourceVersion}, {@code generation},
+ * {@code deletionTimestamp}), its labels, and all of {@code spec} and {@code status}.
+ * the status write only sends the {@code resourceVersion} back from metadata, so nothing
+ * is lost on the way back out.</li>
+ * <li>an owned {@code ConfigMap} or {@code Deployment} is compared against what we
+ * render, so it keeps everything but {@code managedFields}, the last-applied annotation
+ * and (for a {@code Deployment}) {@code status}.</li>
+ * </ul>
+ */
+final class CacheTransforms {
+
+	static final String LAST_APPLIED_ANNOTATION = "kubectl.kubernetes.io/last-applied-configuration";
+
+	private CacheTransforms() {
+	}
+
+	static V1Foo foo(V1Foo foo) {
+		var metadata = foo.getMetadata();
+		if (metadata == null) {
+			return foo;
+		}
+		return foo.metadata(new V1ObjectMeta() //
+				.name(metadata.getName()) //
+				.namespace(metadata.getNamespace()) //
+				.uid(metadata.getUid()) //
+				.resourceVersion(metadata.getResourceVersion()) //
+				.generation(metadata.getGeneration()) //
+				.deletionTimestamp(metadata.getDeletionTimestamp()) //
+				.labels(metadata.getLabels()));
+	}
+
+	static <T extends KubernetesObject> T owned(T object) {
+		var metadata = object.getMetadata();
+		if (metadata == null) {
+			return object;
+		}
+		metadata.setManagedFields(null);
+		var annotations = metadata.getAnnotations();
+		if (annotations != null) {
+			annotations.remove(LAST_APPLIED_ANNOTATION);
+			if (annotations.isEmpty()) {
+				metadata.setAnnotations(null);
+			}
+		}
+		return object;
+	}
+
+	static V1Deployment deployment(V1Deployment deployment) {
+		return owned(deployment).status(null);
+	}
+
+}
@@ -0,0 +1,56 @@
+package io.spring;
+
+import io.spring.models.V1FooSpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * a deterministic fingerprint of everything that ends up in the pods of a {@code Foo}:
+ * the rendered {@code ConfigMap} data and the {@link V1FooSpec}. we stamp it into the
+ * pod template so that the {@code Deployment} only rolls when that content actually
+ * changes.
+ */
+final class ContentHash {
+
+	static final String ANNOTATION = "bootiful-content-hash";
+
+	private ContentHash() {
+	}
+
+	static String of(Map<String, String> configMapData, V1FooSpec spec) {
+		var digest = sha256();
+		new TreeMap<>(configMapData).forEach((key, value) -> {
+			update(digest, key);
+			update(digest, value);
+		});
+		update(digest, spec == null ? null : spec.getName());
+		return HexFormat.of().formatHex(digest.digest(), 0, 16);
+	}
+
+	// length-prefixed so that ("ab", "c") and ("a", "bc") don't collide
+	private static void update(MessageDigest digest, String value) {
+		if (value == null) {
+			digest.update((byte) -1);
+			return;
+		}
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) ':');
+		digest.update(bytes);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+}
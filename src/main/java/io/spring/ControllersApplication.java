@@ -4,46 +4,57 @@ import io.spring.models.V1Foo;
 import io.spring.models.V1FooList;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import io.kubernetes.client.common.KubernetesObject;
 import io.kubernetes.client.extended.controller.Controller;
+import io.kubernetes.client.extended.controller.ControllerWatch;
+import io.kubernetes.client.extended.controller.DefaultController;
 import io.kubernetes.client.extended.controller.builder.ControllerBuilder;
 import io.kubernetes.client.extended.controller.builder.DefaultControllerBuilder;
-import io.kubernetes.client.extended.controller.reconciler.Reconciler;
-import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.workqueue.WorkQueue;
+import io.kubernetes.client.extended.workqueue.ratelimiter.BucketRateLimiter;
+import io.kubernetes.client.extended.workqueue.ratelimiter.MaxOfRateLimiter;
 import io.kubernetes.client.informer.SharedIndexInformer;
 import io.kubernetes.client.informer.SharedInformerFactory;
 import io.kubernetes.client.openapi.ApiClient;
-import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.AppsV1Api;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.models.*;
-import io.kubernetes.client.util.Yaml;
+import io.kubernetes.client.util.ClientBuilder;
 import io.kubernetes.client.util.generic.GenericKubernetesApi;
-import lombok.SneakyThrows;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHints;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
-import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
 
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.Executors;
 
 
 @Slf4j
 @ImportRuntimeHints(ControllersApplication.FooControllerRuntimeHints.class)
 @SpringBootApplication
+@EnableConfigurationProperties(FooControllerProperties.class)
 public class ControllersApplication {
 
 	public static void main(String[] args) {
@@ -57,10 +68,31 @@ public class ControllersApplication {
 			for (var path : new String[] { "/configmap.yaml", "/deployment.yaml" }) {
 				hints.resources().registerResource(new ClassPathResource(path));
 			}
+			// Thread.ofVirtual() is looked up reflectively, see VirtualThreads
+			hints.reflection().registerType(Thread.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+			hints.reflection().registerType(TypeReference.of("java.lang.Thread$Builder"),
+					MemberCategory.INVOKE_PUBLIC_METHODS);
 		}
 
 	}
 
+	@Bean
+	ApiClient apiClient(FooControllerProperties properties, MeterRegistry meterRegistry) throws IOException {
+		var builder = ClientBuilder.standard();
+		if (StringUtils.hasText(properties.getApi().getBasePath())) {
+			builder.setBasePath(properties.getApi().getBasePath());
+		}
+		var apiClient = builder.build();
+		FooTypeAdapters.register(apiClient.getJSON());
+		// the timeouts only start once a call is past the rate limiter, which in turn never
+		// holds a call past its reconcile's deadline
+		return apiClient.setHttpClient(apiClient.getHttpClient().newBuilder() //
+				.addInterceptor(new ThrottlingInterceptor(properties.getApi(), meterRegistry)) //
+				.addInterceptor(new TimeoutInterceptor(properties.getApi())) //
+				.addInterceptor(new ApiMetricsInterceptor(meterRegistry)) //
+				.build());
+	}
+
 	@Bean
 	GenericKubernetesApi<V1Foo, V1FooList> foosApi(ApiClient apiClient) {
 		return new GenericKubernetesApi<>(V1Foo.class, V1FooList.class, "spring.io", "v1", "foos", apiClient);
@@ -68,8 +100,66 @@ public class ControllersApplication {
 
 	@Bean
 	SharedIndexInformer<V1Foo> foosSharedIndexInformer(SharedInformerFactory sharedInformerFactory,
-													   GenericKubernetesApi<V1Foo, V1FooList> api) {
-		return sharedInformerFactory.sharedIndexInformerFor(api, V1Foo.class, 0);
+													   ApiClient apiClient, FooControllerProperties properties,
+													   InformerSnapshots informerSnapshots) {
+		var scope = properties.getScope();
+		var listerWatcher = new CustomResourceListerWatcher<>(apiClient, V1Foo.class, V1FooList.class, "spring.io",
+				"v1", "foos", scope, properties.getApi().getListPageSize());
+		return informerSnapshots.informerFor(sharedInformerFactory, "foos",
+				new TransformingListerWatcher<>(listerWatcher, CacheTransforms::foo), V1Foo.class,
+				(items, metadata) -> new V1FooList().items(items).metadata(metadata), scope.toString(),
+				scope.getNamespaces().size() > 1 ? scope.getNamespaces() : List.of());
+	}
+
+	@Bean
+	GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> configMapsApi(ApiClient apiClient) {
+		return new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1", "configmaps", apiClient);
+	}
+
+	@Bean
+	SharedIndexInformer<V1ConfigMap> configMapsSharedIndexInformer(SharedInformerFactory sharedInformerFactory,
+																   GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> api,
+																   FooControllerProperties properties,
+																   InformerSnapshots informerSnapshots,
+																   ApiClient apiClient) {
+		var listerWatcher = new LabelSelectingListerWatcher<>(api, ownedNamespace(properties),
+				FooReconciler.MANAGED_BY_SELECTOR,
+				properties.getApi().isProtobuf() ? ProtobufLister.configMaps(apiClient) : null);
+		return informerSnapshots.informerFor(sharedInformerFactory, "configmaps",
+				new TransformingListerWatcher<>(listerWatcher, CacheTransforms::owned), V1ConfigMap.class,
+				(items, metadata) -> new V1ConfigMapList().items(items).metadata(metadata),
+				"namespace=" + ownedNamespace(properties), List.of());
+	}
+
+	@Bean
+	GenericKubernetesApi<V1Deployment, V1DeploymentList> deploymentsApi(ApiClient apiClient) {
+		return new GenericKubernetesApi<>(V1Deployment.class, V1DeploymentList.class, "apps", "v1", "deployments",
+				apiClient);
+	}
+
+	@Bean
+	SharedIndexInformer<V1Deployment> deploymentsSharedIndexInformer(SharedInformerFactory sharedInformerFactory,
+																	 GenericKubernetesApi<V1Deployment, V1DeploymentList> api,
+																	 FooControllerProperties properties,
+																	 InformerSnapshots informerSnapshots) {
+		var listerWatcher = new LabelSelectingListerWatcher<>(api, ownedNamespace(properties),
+				FooReconciler.MANAGED_BY_SELECTOR);
+		return informerSnapshots.informerFor(sharedInformerFactory, "deployments",
+				new TransformingListerWatcher<>(listerWatcher, CacheTransforms::deployment), V1Deployment.class,
+				(items, metadata) -> new V1DeploymentList().items(items).metadata(metadata),
+				"namespace=" + ownedNamespace(properties), List.of());
+	}
+
+	@Bean(destroyMethod = "close")
+	InformerSnapshots informerSnapshots(FooControllerProperties properties, ApiClient apiClient,
+										MeterRegistry meterRegistry) {
+		return new InformerSnapshots(properties.getSnapshot(), apiClient.getJSON(), meterRegistry);
+	}
+
+	// what we own lives next to its Foo: with a single namespace in scope, so do we
+	private static String ownedNamespace(FooControllerProperties properties) {
+		var namespaces = properties.getScope().getNamespaces();
+		return namespaces.size() == 1 ? namespaces.get(0) : null;
 	}
 
 	@Bean
@@ -82,145 +172,157 @@ public class ControllersApplication {
 		return new CoreV1Api(apiClient);
 	}
 
+	@Bean
+	InstrumentedWorkQueue<Request> fooWorkQueue(FooControllerProperties properties, MeterRegistry meterRegistry) {
+		var retry = properties.getRetry();
+		var rateLimiter = new MaxOfRateLimiter<Request>(
+				new JitteredExponentialRateLimiter<>(retry.getBaseDelay(), retry.getMaxDelay(), retry.getJitter()),
+				new BucketRateLimiter<>(retry.getBurst(), retry.getQps(), Duration.ofSeconds(1)));
+		// namespaces take turns, so that a big tenant can't starve a small one
+		return new InstrumentedWorkQueue<>(new LanedWorkQueue<>(Request::getNamespace), rateLimiter, meterRegistry);
+	}
+
+	@Bean
+	MeterBinder informerCacheSizes(SharedIndexInformer<V1Foo> foosSharedIndexInformer,
+								   SharedIndexInformer<V1ConfigMap> configMapsSharedIndexInformer,
+								   SharedIndexInformer<V1Deployment> deploymentsSharedIndexInformer) {
+		Map<String, SharedIndexInformer<?>> informers = Map.of("foos", foosSharedIndexInformer, "configmaps",
+				configMapsSharedIndexInformer, "deployments", deploymentsSharedIndexInformer);
+		return registry -> informers.forEach((resource, informer) -> Gauge
+				.builder("foo.informer.cache.size", informer, i -> i.getIndexer().listKeys().size()) //
+				.description("objects in the informer cache") //
+				.tag("resource", resource) //
+				.register(registry));
+	}
+
+	@Bean(destroyMethod = "close")
+	MetricsServer metricsServer(FooControllerProperties properties, PrometheusMeterRegistry meterRegistry,
+								ObjectProvider<HealthEndpoint> healthEndpoint) throws IOException {
+		return new MetricsServer(properties.getMetrics(), meterRegistry, healthEndpoint.getIfAvailable());
+	}
+
 	@Bean(destroyMethod = "shutdown")
 	Controller fooController(SharedInformerFactory sharedInformerFactory, SharedIndexInformer<V1Foo> fooNodeInformer,
-							 Reconciler reconciler) {
+							 SharedIndexInformer<V1ConfigMap> configMapsSharedIndexInformer,
+							 SharedIndexInformer<V1Deployment> deploymentsSharedIndexInformer, FooReconciler reconciler,
+							 InstrumentedWorkQueue<Request> fooWorkQueue, FooControllerProperties properties,
+							 Sharding sharding, MeterRegistry meterRegistry) {
 
+		var workers = properties.getWorkers();
+		// in adaptive mode the AdaptiveConcurrencyReconciler decides how many of these
+		// threads actually do work at any given time
+		var workerCount = workers.isAdaptive() ? workers.getMaxCount() : workers.getCount();
+		var drift = fooWorkQueue.lane(LanedWorkQueue.Lane.DRIFT);
+		var concurrency = new AdaptiveConcurrencyReconciler(
+				new DeadlineReconciler(sharding.guard(reconciler), workers.getDeadline(), meterRegistry), fooWorkQueue,
+				workers, meterRegistry);
 		DefaultControllerBuilder builder = ControllerBuilder //
 				.defaultBuilder(sharedInformerFactory)//
-				.watch(fooQ -> ControllerBuilder //
-						.controllerWatchBuilder(V1Foo.class, fooQ)//
-						.withResyncPeriod(Duration.ofSeconds(1))//
-						.build()) //
-				.withWorkerCount(2);
-		return builder//
-				.withReconciler(reconciler) //
-				.withReadyFunc(fooNodeInformer::hasSynced) // optional: only start once
-				// the index is synced
+				// workers wait for a permit before they take a key, see AdaptiveConcurrencyReconciler
+				.withWorkQueue(concurrency.workQueue()) // before watch(), which hands out the queue right away
+				.watch(fooQ -> new StaggeredResyncWatch<>(V1Foo.class, fooWorkQueue,
+						fooWorkQueue.lane(LanedWorkQueue.Lane.RESYNC), sharding::requestFor,
+						foo -> !reconciler.isUpToDate(foo), properties.getResync().getFoos())) //
+				// drift in what we own brings its Foo back right away, rather than with the next resync
+				.watch(q -> ownedWatch(V1ConfigMap.class, drift, sharding)) //
+				.watch(q -> ownedWatch(V1Deployment.class, drift, sharding)) //
+				.withWorkerCount(workerCount);
+		var controller = builder//
+				.withReconciler(concurrency) //
+				.withReadyFunc(() -> fooNodeInformer.hasSynced() && configMapsSharedIndexInformer.hasSynced()
+						&& deploymentsSharedIndexInformer.hasSynced()) // optional: only start once
+				// the indexes are synced
 				.withName("fooController") ///
 				.build();
+		// whatever we just took over from another replica
+		sharding.onRebalance(() -> fooNodeInformer.getIndexer().list().forEach(foo -> {
+			var request = sharding.requestFor(foo);
+			if (request != null) {
+				drift.add(request);
+			}
+		}));
+		if (workers.isVirtualThreads()) {
+			var threadFactory = VirtualThreads.factory("fooController-worker-");
+			if (threadFactory.isPresent() && controller instanceof DefaultController defaultController) {
+				defaultController.setWorkerThreadPool(Executors.newScheduledThreadPool(workerCount, threadFactory.get()));
+			}
+			else {
+				log.warn("virtual threads are not available on this runtime. Using platform threads.");
+			}
+		}
+		return controller;
 
 	}
 
-	@Bean
-	ApplicationRunner runner(SharedInformerFactory sharedInformerFactory, Controller controller) {
-		var executorService = Executors.newCachedThreadPool();
-		return args -> executorService.execute(() -> {
-			sharedInformerFactory.startAllRegisteredInformers();
-			controller.run();
-		});
+	/**
+	 * enqueues the Foo that owns the changed object. the key function can't return
+	 * {@code null}, so ownership (shards included) is checked by the filters instead.
+	 */
+	private static <ApiType extends KubernetesObject> ControllerWatch<ApiType> ownedWatch(Class<ApiType> apiTypeClass,
+			WorkQueue<Request> workQueue, Sharding sharding) {
+		return ControllerBuilder.controllerWatchBuilder(apiTypeClass, workQueue) //
+				.withWorkQueueKeyFunc(FooReconciler::ownerOf) //
+				.withOnAddFilter(owned -> sharding.ownerRequestFor(owned) != null) //
+				.withOnUpdateFilter((oldOwned, owned) -> FooReconciler.changesWhatWeRender(oldOwned, owned)
+						&& sharding.ownerRequestFor(owned) != null) //
+				.withOnDeleteFilter((owned, finalStateUnknown) -> sharding.ownerRequestFor(owned) != null) //
+				.withResyncPeriod(Duration.ZERO) //
+				.build();
 	}
 
-	@FunctionalInterface
-	interface ApiSupplier<T> {
-
-		T get() throws ApiException;
+	@Bean
+	LeaderElection leaderElection(FooControllerProperties properties, ApiClient apiClient,
+								  MeterRegistry meterRegistry) {
+		return new LeaderElection(properties.getLeaderElection(), apiClient, meterRegistry);
+	}
 
+	@Bean(destroyMethod = "close")
+	Sharding sharding(FooControllerProperties properties, ApiClient apiClient, MeterRegistry meterRegistry) {
+		Assert.state(!properties.getSharding().isEnabled() || !properties.getLeaderElection().isEnabled(),
+				"sharding and leader election can't be combined: with sharding, every replica reconciles");
+		return new Sharding(properties.getSharding(), new GenericKubernetesApi<>(V1Lease.class, V1LeaseList.class,
+				"coordination.k8s.io", "v1", "leases", apiClient),
+				properties.getApi().isProtobuf() ? ProtobufLister.leases(apiClient) : null, meterRegistry);
 	}
 
-	/**
-	 * the Reconciler won't get an event telling it that the cluster has changed, but
-	 * instead it looks at cluster state and determines that something has changed
-	 */
 	@Bean
-	Reconciler reconciler(@Value("classpath:configmap.yaml") Resource configMapYaml,
-						  @Value("classpath:deployment.yaml") Resource deploymentYaml,
-						  SharedIndexInformer<V1Foo> v1FooSharedIndexInformer, AppsV1Api appsV1Api, CoreV1Api coreV1Api) {
-		return request -> {
-			try {
-				// create new one on k apply -f foo.yaml
-				String requestName = request.getName();
-				String key = request.getNamespace() + '/' + requestName;
-				V1Foo foo = v1FooSharedIndexInformer.getIndexer().getByKey(key);
-				if (foo == null) { // deleted. we use ownerreferences so dont need to do
-					// anything special here
-					return new Result(false);
-				}
-
-				String namespace = foo.getMetadata().getNamespace();
-				String pretty = "true";
-				String dryRun = null;
-				String fieldManager = "";
-				String fieldValidation = "";
-
-				// parameterize configmap
-				String configMapName = "configmap-" + requestName;
-				V1ConfigMap configMap = loadYamlAs(configMapYaml, V1ConfigMap.class);
-				String html = "<h1> Hello, " + foo.getSpec().getName() + " </h1>";
-				configMap.getData().put("index.html", html);
-				configMap.getMetadata().setName(configMapName);
-				createOrUpdate(V1ConfigMap.class, () -> {
-					addOwnerReference(requestName, foo, configMap);
-					return coreV1Api.createNamespacedConfigMap(namespace, configMap, pretty, dryRun, fieldManager,
-							fieldValidation);
-				}, () -> coreV1Api.replaceNamespacedConfigMap(configMapName, namespace, configMap,
-							pretty, dryRun, fieldManager, fieldValidation));
-
-				// parameterize deployment
-				String deploymentName = "deployment-" + requestName;
-				V1Deployment deployment = loadYamlAs(deploymentYaml, V1Deployment.class);
-				deployment.getMetadata().setName(deploymentName);
-				List<V1Volume> volumes = deployment.getSpec().getTemplate().getSpec().getVolumes();
-				Assert.isTrue(volumes.size() == 1, () -> "there should be only one V1Volume");
-				volumes.forEach(vol -> vol.getConfigMap().setName(configMapName));
-				createOrUpdate(V1Deployment.class, () -> {
-					deployment.getSpec().getTemplate().getMetadata()
-							.setAnnotations(Map.of("bootiful-update", Instant.now().toString()));
-					addOwnerReference(requestName, foo, deployment);
-					return appsV1Api.createNamespacedDeployment(namespace, deployment, pretty, dryRun, fieldManager,
-							fieldValidation);
-				}, () -> {
-					updateAnnotation(deployment);
-					return appsV1Api.replaceNamespacedDeployment(deploymentName, namespace, deployment, pretty, dryRun,
-							fieldManager, fieldValidation);
-				});
-			} //
-			catch (Throwable e) {
-				log.error("we've got an outer error.", e);
-				return new Result(true, Duration.ofSeconds(60));
-			}
-			return new Result(false);
-		};
-	}
-
-	private void updateAnnotation(V1Deployment deployment) {
-		Objects.requireNonNull(Objects.requireNonNull(deployment.getSpec()).getTemplate().getMetadata())
-				.setAnnotations(Map.of("bootiful-update", Instant.now().toString()));
-	}
-
-	static private <T> void createOrUpdate(Class<T> clazz, ApiSupplier<T> creator, ApiSupplier<T> updater) {
-		try {
-			creator.get();
-			log.info("It worked! we created a new " + clazz.getName() + "!");
-		} //
-		catch (ApiException throwable) {
-			int code = throwable.getCode();
-			if (code == 409) { // already exists
-				log.info("the " + clazz.getName() + " already exists. Replacing.");
-				try {
-					updater.get();
-					log.info("successfully updated the " + clazz.getName());
-				}
-				catch (ApiException ex) {
-					log.error("got an error on update", ex);
-				}
-			} //
-			else {
-				log.info("got an exception with code " + code + " while trying to create the " + clazz.getName());
-			}
-		}
+	ApplicationRunner runner(SharedInformerFactory sharedInformerFactory, Controller controller,
+							 LeaderElection leaderElection, Sharding sharding, InformerSnapshots informerSnapshots,
+							 ConfigurableApplicationContext context) {
+		// controller.run() blocks for as long as the controller lives, and that's all we use it for
+		var executorService = Executors.newSingleThreadExecutor();
+		return args -> executorService.execute(() -> {
+			sharding.start();
+			// standbys too, so that their caches are warm when they take over
+			sharedInformerFactory.startAllRegisteredInformers();
+			informerSnapshots.start();
+			leaderElection.run(controller::run, () -> {
+				// a controller can't be restarted, and whoever leads now must not see us write
+				log.error("lost the leader lease. Shutting down.");
+				new Thread(() -> System.exit(SpringApplication.exit(context, () -> 1))).start();
+			});
+		});
 	}
 
-	private static V1ObjectMeta addOwnerReference(String requestName, V1Foo foo, KubernetesObject kubernetesObject) {
-		Assert.notNull(foo, () -> "the V1Foo must not be null");
-		return kubernetesObject.getMetadata().addOwnerReferencesItem(new V1OwnerReference().kind(foo.getKind())
-				.apiVersion(foo.getApiVersion()).controller(true).uid(foo.getMetadata().getUid()).name(requestName));
+	@Bean
+	TemplateCache templateCache(ApiClient apiClient, @Value("classpath:configmap.yaml") Resource configMapYaml,
+								@Value("classpath:deployment.yaml") Resource deploymentYaml) {
+		return new TemplateCache(apiClient.getJSON()) //
+				.register(V1ConfigMap.class, configMapYaml) //
+				.register(V1Deployment.class, deploymentYaml);
 	}
 
-	@SneakyThrows
-	private static <T> T loadYamlAs(Resource resource, Class<T> clzz) {
-		var yaml = FileCopyUtils.copyToString(new InputStreamReader(resource.getInputStream()));
-		return Yaml.loadAs(yaml, clzz);
+	@Bean
+	FooReconciler reconciler(TemplateCache templateCache, SharedIndexInformer<V1Foo> v1FooSharedIndexInformer,
+						  SharedIndexInformer<V1ConfigMap> configMapsSharedIndexInformer,
+						  SharedIndexInformer<V1Deployment> deploymentsSharedIndexInformer, AppsV1Api appsV1Api,
+						  CoreV1Api coreV1Api, GenericKubernetesApi<V1Foo, V1FooList> foosApi,
+						  GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> configMapsApi,
+						  GenericKubernetesApi<V1Deployment, V1DeploymentList> deploymentsApi, ApiClient apiClient,
+						  FooControllerProperties properties, MeterRegistry meterRegistry) {
+		return new FooReconciler(templateCache, v1FooSharedIndexInformer, configMapsSharedIndexInformer,
+				deploymentsSharedIndexInformer, appsV1Api, coreV1Api, foosApi, configMapsApi, deploymentsApi,
+				apiClient.getJSON(), properties, new ReconcileMetrics(meterRegistry));
 	}
 
 }
\ No newline at end of file
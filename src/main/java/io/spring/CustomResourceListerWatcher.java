@@ -0,0 +1,304 @@
+package io.spring;
+
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * lists and watches a custom resource, limited to the configured {@link FooControllerProperties.Scope
+ * scope}, without ever asking the API server for everything in one response.
+ * <ul>
+ * <li>the LIST is fetched {@code pageSize} objects at a time with {@code limit} and
+ * {@code continue}, so no single response (and the buffer and JSON tree it is parsed
+ * from) grows with the number of objects. the pages are joined into the one list the
+ * informer expects. paged lists are always consistent reads: the API server's watch cache,
+ * which is what a {@code resourceVersion=0} list is served from, ignores {@code limit}. if
+ * a {@code continue} token expires halfway through, we start over without paging, the way
+ * client-go's pager does.</li>
+ * <li>the watch asks for bookmarks, so that the informer's last seen
+ * {@code resourceVersion} keeps moving even when nothing changes, and a watch that times out
+ * (or drops) resumes from there instead of failing with a {@code 410 Gone} and relisting
+ * everything.</li>
+ * <li>label and field selectors are passed straight to the API server.</li>
+ * <li>with no namespaces configured we list and watch across all of them, with one we
+ * stick to it. with several, every namespace is listed at exactly the
+ * {@code resourceVersion} of the first one, so that together they are one consistent
+ * snapshot, and watched separately. the informer only tracks a single
+ * {@code resourceVersion}, which says nothing about how far each of those watches got, so
+ * we remember, per namespace, the last version we handed over (bookmarks included) and
+ * resume each watch from its own. bookmarks are handed over with the namespace of the
+ * watch they came from.</li>
+ * </ul>
+ * a {@code pageSize} of 0 turns paging off.
+ */
+@Slf4j
+class CustomResourceListerWatcher<ApiType extends KubernetesObject, ApiListType extends KubernetesListObject>
+		implements ListerWatcher<ApiType, ApiListType> {
+
+	private record Event<T>(String namespace, Watch.Response<T> response) {
+	}
+
+	private final ApiClient apiClient;
+
+	private final CustomObjectsApi customObjectsApi;
+
+	private final Class<ApiListType> apiListTypeClass;
+
+	private final Type watchType;
+
+	private final String group;
+
+	private final String version;
+
+	private final String plural;
+
+	private final List<String> namespaces;
+
+	private final String labelSelector;
+
+	private final String fieldSelector;
+
+	private final int pageSize;
+
+	private final Map<String, String> resumeFrom = new ConcurrentHashMap<>();
+
+	CustomResourceListerWatcher(ApiClient apiClient, Class<ApiType> apiTypeClass, Class<ApiListType> apiListTypeClass,
+			String group, String version, String plural, FooControllerProperties.Scope scope, int pageSize) {
+		this.apiClient = apiClient;
+		this.customObjectsApi = new CustomObjectsApi(apiClient);
+		this.apiListTypeClass = apiListTypeClass;
+		this.watchType = TypeToken.getParameterized(Watch.Response.class, apiTypeClass).getType();
+		this.group = group;
+		this.version = version;
+		this.plural = plural;
+		this.namespaces = scope.getNamespaces().isEmpty() ? Arrays.asList((String) null)
+				: List.copyOf(scope.getNamespaces());
+		this.labelSelector = StringUtils.hasText(scope.getLabelSelector()) ? scope.getLabelSelector() : null;
+		this.fieldSelector = StringUtils.hasText(scope.getFieldSelector()) ? scope.getFieldSelector() : null;
+		this.pageSize = pageSize;
+	}
+
+	@Override
+	public ApiListType list(CallGeneratorParams params) throws ApiException {
+		try {
+			return list(params.resourceVersion, this.pageSize > 0);
+		}
+		catch (ApiException e) {
+			if (e.getCode() != HttpURLConnection.HTTP_GONE || this.pageSize <= 0) {
+				throw e;
+			}
+			log.warn("the continue token for " + this.plural + " expired while paging. Listing without pages.");
+			return list(params.resourceVersion, false);
+		}
+	}
+
+	@Override
+	public Watchable<ApiType> watch(CallGeneratorParams params) throws ApiException {
+		if (this.namespaces.size() == 1) {
+			return watch(this.namespaces.get(0), params.resourceVersion, params.timeoutSeconds);
+		}
+		var watches = new LinkedHashMap<String, Watchable<ApiType>>();
+		try {
+			for (var namespace : this.namespaces) {
+				watches.put(namespace, watch(namespace, this.resumeFrom.getOrDefault(namespace, params.resourceVersion),
+						params.timeoutSeconds));
+			}
+		}
+		catch (ApiException | RuntimeException e) {
+			watches.values().forEach(CustomResourceListerWatcher::closeQuietly);
+			throw e;
+		}
+		return new MergedWatch(watches);
+	}
+
+	@SuppressWarnings("unchecked")
+	private ApiListType list(String resourceVersion, boolean paged) throws ApiException {
+		ApiListType merged = null;
+		for (var namespace : this.namespaces) {
+			if (merged == null) {
+				// a paged list must be a consistent read, see above
+				merged = list(namespace, paged ? null : resourceVersion, false, paged);
+				resourceVersion = merged.getMetadata().getResourceVersion();
+			}
+			else {
+				var list = list(namespace, resourceVersion, true, paged);
+				((List<ApiType>) merged.getItems()).addAll((List<ApiType>) list.getItems());
+			}
+		}
+		if (this.namespaces.size() > 1) {
+			for (var namespace : this.namespaces) {
+				this.resumeFrom.put(namespace, resourceVersion);
+			}
+		}
+		log.debug("listed " + merged.getItems().size() + " " + this.plural + " at " + resourceVersion);
+		return merged;
+	}
+
+	@SuppressWarnings("unchecked")
+	private ApiListType list(String namespace, String resourceVersion, boolean exact, boolean paged)
+			throws ApiException {
+		var limit = paged ? this.pageSize : null;
+		var first = execute(listCall(namespace, null, limit, resourceVersion, exact ? "Exact" : null, null, false));
+		var items = (List<ApiType>) first.getItems();
+		var metadata = first.getMetadata();
+		while (StringUtils.hasText(metadata.getContinue())) {
+			var page = execute(listCall(namespace, metadata.getContinue(), limit, null, null, null, false));
+			items.addAll((List<ApiType>) page.getItems());
+			metadata = page.getMetadata();
+		}
+		first.getMetadata().setResourceVersion(metadata.getResourceVersion());
+		first.getMetadata().setContinue(null);
+		return first;
+	}
+
+	private Watchable<ApiType> watch(String namespace, String resourceVersion, Integer timeoutSeconds)
+			throws ApiException {
+		var call = listCall(namespace, null, null, resourceVersion, null, timeoutSeconds, true);
+		return Watch.createWatch(this.apiClient, call, this.watchType);
+	}
+
+	private Call listCall(String namespace, String continueToken, Integer limit, String resourceVersion,
+			String resourceVersionMatch, Integer timeoutSeconds, boolean watch) throws ApiException {
+		Boolean bookmarks = watch ? true : null;
+		if (namespace == null) {
+			return this.customObjectsApi.listClusterCustomObjectCall(this.group, this.version, this.plural, null,
+					bookmarks, continueToken, this.fieldSelector, this.labelSelector, limit, resourceVersion,
+					resourceVersionMatch, timeoutSeconds, watch, null);
+		}
+		return this.customObjectsApi.listNamespacedCustomObjectCall(this.group, this.version, namespace, this.plural,
+				null, bookmarks, continueToken, this.fieldSelector, this.labelSelector, limit, resourceVersion,
+				resourceVersionMatch, timeoutSeconds, watch, null);
+	}
+
+	private ApiListType execute(Call call) throws ApiException {
+		return this.apiClient.<ApiListType>execute(call, this.apiListTypeClass).getData();
+	}
+
+	private static void closeQuietly(Watchable<?> watch) {
+		try {
+			watch.close();
+		}
+		catch (IOException | RuntimeException e) {
+			log.trace("could not close a watch", e);
+		}
+	}
+
+	/**
+	 * one watch per namespace, each drained by a thread of its own into a single queue.
+	 * the first of them to end ends them all, so that the informer comes back and we can
+	 * resume every namespace from where it got to.
+	 */
+	private final class MergedWatch implements Watchable<ApiType> {
+
+		private final BlockingQueue<Event<ApiType>> events = new LinkedBlockingQueue<>();
+
+		private final List<Watchable<ApiType>> watches;
+
+		private volatile boolean ended;
+
+		private Event<ApiType> next;
+
+		MergedWatch(Map<String, Watchable<ApiType>> watches) {
+			this.watches = new ArrayList<>(watches.values());
+			watches.forEach((namespace, watch) -> {
+				var thread = new Thread(() -> {
+					try {
+						while (watch.hasNext()) {
+							this.events.add(new Event<>(namespace, watch.next()));
+						}
+					}
+					catch (RuntimeException e) { // mostly the watch being closed under us
+						log.debug("the watch on " + plural + " in " + namespace + " ended", e);
+					}
+					finally {
+						this.events.add(new Event<>(namespace, null));
+					}
+				}, "watch-" + plural + '-' + namespace);
+				thread.setDaemon(true);
+				thread.start();
+			});
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null) {
+				Event<ApiType> event;
+				try {
+					// once one has ended, hand over what's already here and stop
+					event = this.ended ? this.events.poll() : this.events.take();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+					return false;
+				}
+				if (event == null) {
+					return false;
+				}
+				if (event.response() == null) {
+					close();
+					continue;
+				}
+				this.next = event;
+			}
+			return true;
+		}
+
+		@Override
+		public Watch.Response<ApiType> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			var event = this.next;
+			this.next = null;
+			var response = event.response();
+			// a bookmark says nothing of which watch it came from, and is only good for that one
+			if ("BOOKMARK".equals(response.type) && response.object != null && response.object.getMetadata() != null
+					&& response.object.getMetadata().getNamespace() == null) {
+				response.object.getMetadata().setNamespace(event.namespace());
+			}
+			if (!"ERROR".equals(response.type) && response.object != null && response.object.getMetadata() != null
+					&& response.object.getMetadata().getResourceVersion() != null) {
+				resumeFrom.put(event.namespace(), response.object.getMetadata().getResourceVersion());
+			}
+			return response;
+		}
+
+		@Override
+		public Iterator<Watch.Response<ApiType>> iterator() {
+			return this;
+		}
+
+		@Override
+		public void close() {
+			this.ended = true;
+			this.watches.forEach(CustomResourceListerWatcher::closeQuietly);
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Reconciler;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gives every reconcile a deadline. when it passes, whatever API calls the reconcile still
+ * has in flight are cancelled, so a hung call fails right away instead of holding on to a
+ * worker, and the request is retried with the usual per-key backoff. reconciles that ran
+ * out of time are counted in {@code foo.reconcile.deadline.exceeded}.
+ * <p>
+ * only API calls can be cut short, and the client-side rate limiter won't make one wait
+ * past the deadline. time spent on anything else counts against the deadline but isn't
+ * interrupted by it.
+ */
+@Slf4j
+class DeadlineReconciler implements Reconciler {
+
+	private final Reconciler delegate;
+
+	private final Duration timeout;
+
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "foo-reconcile-deadlines");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Counter exceeded;
+
+	DeadlineReconciler(Reconciler delegate, Duration timeout, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.timeout = timeout;
+		this.exceeded = Counter.builder("foo.reconcile.deadline.exceeded") //
+				.description("reconciles that ran out of time, and had their API calls cancelled") //
+				.register(meterRegistry);
+	}
+
+	@Override
+	public Result reconcile(Request request) {
+		if (this.timeout.isZero() || this.timeout.isNegative()) {
+			return this.delegate.reconcile(request);
+		}
+		var deadline = new ReconcileDeadline(this.timeout);
+		var expiry = this.timer.schedule(deadline::expire, this.timeout.toNanos(), TimeUnit.NANOSECONDS);
+		Result result;
+		try {
+			result = deadline.call(() -> this.delegate.reconcile(request));
+		}
+		catch (RuntimeException e) {
+			if (!deadline.isExpired()) {
+				throw e;
+			}
+			result = null; // most likely the cancelled call
+		}
+		finally {
+			expiry.cancel(false);
+		}
+		if (!deadline.isExpired()) {
+			return result;
+		}
+		this.exceeded.increment();
+		log.warn("reconciling " + request.getNamespace() + '/' + request.getName() + " took longer than "
+				+ this.timeout + ". Backing off.");
+		return new Result(true);
+	}
+
+}
@@ -0,0 +1,354 @@
+package io.spring;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * knobs for the {@code fooController}, all under {@code bootiful.controller}.
+ */
+@Data
+@ConfigurationProperties(prefix = "bootiful.controller")
+class FooControllerProperties {
+
+	enum WriteMode {
+
+		/**
+		 * create, and on a 409 (or when the cache says it drifted) replace the whole object
+		 */
+		REPLACE,
+
+		/**
+		 * one server-side apply PATCH carrying only the fields we own
+		 */
+		APPLY
+
+	}
+
+	/**
+	 * how owned {@code ConfigMap}s and {@code Deployment}s are written.
+	 */
+	private WriteMode writeMode = WriteMode.REPLACE;
+
+	/**
+	 * the field manager recorded in {@code managedFields} for everything we write.
+	 */
+	private String fieldManager = "foo-controller";
+
+	/**
+	 * whether the replica count in {@code deployment.yaml} is enforced. off, it belongs to
+	 * whoever scales the {@code Deployment}s, e.g. an HPA: it is never applied nor compared,
+	 * and replacing a {@code Deployment} keeps its live count. new {@code Deployment}s still
+	 * start with the template's count, in either write mode.
+	 */
+	private boolean ownReplicas = false;
+
+	private final Scope scope = new Scope();
+
+	private final ConfigMaps configMaps = new ConfigMaps();
+
+	private final Workers workers = new Workers();
+
+	private final Resync resync = new Resync();
+
+	private final Retry retry = new Retry();
+
+	private final Api api = new Api();
+
+	private final LeaderElection leaderElection = new LeaderElection();
+
+	private final Sharding sharding = new Sharding();
+
+	private final Snapshot snapshot = new Snapshot();
+
+	private final Metrics metrics = new Metrics();
+
+	/**
+	 * which Foos this instance looks after. nothing outside the scope is ever listed,
+	 * watched, cached or reconciled, so several instances can split a cluster between
+	 * them, e.g. one per tenant.
+	 */
+	@Data
+	static class Scope {
+
+		/**
+		 * the namespaces to watch. empty means all of them. the {@code ConfigMap}s and
+		 * {@code Deployment}s we own are watched in the one namespace when there is just
+		 * one, and by their label across all namespaces otherwise.
+		 */
+		private List<String> namespaces = new ArrayList<>();
+
+		/**
+		 * only Foos matching this label selector, e.g. {@code tenant=blue}.
+		 */
+		private String labelSelector;
+
+		/**
+		 * only Foos matching this field selector, e.g. {@code metadata.name!=demo}.
+		 */
+		private String fieldSelector;
+
+	}
+
+	@Data
+	static class ConfigMaps {
+
+		/**
+		 * rather than replacing one {@code ConfigMap} per Foo in place, create a new,
+		 * {@code immutable} one named after its content whenever the content changes, and
+		 * point the {@code Deployment} at it. kubelets don't watch immutable
+		 * {@code ConfigMap}s, and pods switch content all at once, with the rollout.
+		 */
+		private boolean immutable = false;
+
+		/**
+		 * how many immutable {@code ConfigMap}s each Foo keeps, the current one included,
+		 * for the pods of a rollout in progress and for rollbacks. older ones are deleted.
+		 */
+		private int keep = 3;
+
+	}
+
+	@Data
+	static class Workers {
+
+		/**
+		 * how many reconciles run at once. in adaptive mode, where the limit starts.
+		 */
+		private int count = 2;
+
+		/**
+		 * run the reconcile workers on virtual threads. needs a Java 21 runtime, and falls
+		 * back to platform threads anywhere else.
+		 */
+		private boolean virtualThreads = false;
+
+		/**
+		 * grow and shrink the number of concurrent reconciles between {@code min-count}
+		 * and {@code max-count}, based on the work queue backlog and on how long
+		 * reconciles take compared to {@code target-latency}.
+		 */
+		private boolean adaptive = false;
+
+		private int minCount = 1;
+
+		private int maxCount = 32;
+
+		private Duration targetLatency = Duration.ofMillis(500);
+
+		/**
+		 * write a Foo's {@code ConfigMap} and {@code Deployment} at the same time, rather
+		 * than one after the other.
+		 */
+		private boolean parallelWrites = true;
+
+		/**
+		 * how long one reconcile may take. past that, its API calls are cancelled and it is
+		 * retried with backoff. {@code 0} means no limit.
+		 */
+		private Duration deadline = Duration.ofSeconds(30);
+
+	}
+
+	/**
+	 * how often each watch replays every cached object through the controller. the replays
+	 * are spread evenly over the period, and objects that are already reconciled are
+	 * skipped. {@code 0} turns resync off. changes to the {@code ConfigMap}s and
+	 * {@code Deployment}s we own bring their Foo back on their own, so this is only a
+	 * safety net.
+	 */
+	@Data
+	static class Resync {
+
+		private Duration foos = Duration.ofHours(1);
+
+	}
+
+	/**
+	 * how failed reconciles come back: a per-key exponential backoff, combined with a
+	 * token bucket shared by every retry.
+	 */
+	@Data
+	static class Retry {
+
+		private Duration baseDelay = Duration.ofMillis(5);
+
+		private Duration maxDelay = Duration.ofMinutes(5);
+
+		/**
+		 * the fraction of each backoff that may be taken off at random.
+		 */
+		private double jitter = 0.2;
+
+		/**
+		 * retries per second, across all keys.
+		 */
+		private long qps = 10;
+
+		private long burst = 100;
+
+	}
+
+	/**
+	 * client-side limits on how hard we hit the API server. reads and writes each get
+	 * their own bucket; watches are exempt. a qps of 0 means unlimited.
+	 */
+	@Data
+	static class Api {
+
+		/**
+		 * talk to this API server instead of the one from the kubeconfig or the in-cluster
+		 * service account, e.g. the fake one the load tests start.
+		 */
+		private String basePath;
+
+		private double readQps = 50;
+
+		private int readBurst = 100;
+
+		private double writeQps = 20;
+
+		private int writeBurst = 40;
+
+		/**
+		 * how many Foos the informer asks for per LIST request. 0 lists them all at once.
+		 */
+		private int listPageSize = 500;
+
+		/**
+		 * how long to wait for a connection to the API server. {@code 0} means forever.
+		 */
+		private Duration connectTimeout = Duration.ofSeconds(10);
+
+		/**
+		 * how long any one read or write on a connection may stall, for everything but
+		 * watches. {@code 0} means forever.
+		 */
+		private Duration readTimeout = Duration.ofSeconds(15);
+
+		/**
+		 * list {@code ConfigMap}s and the sharding {@code Lease}s in protobuf rather than
+		 * JSON. watches, writes and everything else stay JSON, see {@link ProtobufLister}.
+		 */
+		private boolean protobuf = false;
+
+	}
+
+	/**
+	 * only the replica holding the {@code Lease} runs the controller; the others keep their
+	 * informer caches synced so they can take over right away.
+	 */
+	@Data
+	static class LeaderElection {
+
+		private boolean enabled = false;
+
+		private String leaseNamespace = "default";
+
+		private String leaseName = "foo-controller";
+
+		/**
+		 * who we are in the lease. defaults to the pod name.
+		 */
+		private String identity;
+
+		/**
+		 * how long a lease is good for without being renewed, i.e. the longest a crashed
+		 * leader can keep the others waiting.
+		 */
+		private Duration leaseDuration = Duration.ofSeconds(15);
+
+		/**
+		 * how long the leader keeps trying to renew before it gives up leading.
+		 */
+		private Duration renewDeadline = Duration.ofSeconds(10);
+
+		private Duration retryPeriod = Duration.ofSeconds(2);
+
+	}
+
+	/**
+	 * every replica reconciles its own share of the Foos, by consistent hashing of
+	 * {@code namespace/name}. replicas find each other through one {@code Lease} each.
+	 * can't be combined with leader election.
+	 */
+	@Data
+	static class Sharding {
+
+		private boolean enabled = false;
+
+		private String leaseNamespace = "default";
+
+		/**
+		 * each replica's lease is called this followed by its identity.
+		 */
+		private String leasePrefix = "foo-controller-shard-";
+
+		/**
+		 * who we are on the ring. defaults to the pod name, which a restarted container
+		 * keeps, so it renews the lease it already has.
+		 */
+		private String identity;
+
+		/**
+		 * how long a replica stays on the ring after its last renewal. expiry is judged
+		 * by the reader's clock, so keep this well above any clock skew.
+		 */
+		private Duration leaseDuration = Duration.ofSeconds(15);
+
+		/**
+		 * how often each replica renews its lease and re-reads everyone else's.
+		 */
+		private Duration renewPeriod = Duration.ofSeconds(5);
+
+		/**
+		 * a replica that crashes, or whose pod is replaced, never deletes its own lease.
+		 * whichever replica next sees one that has been expired this long deletes it.
+		 */
+		private Duration deleteExpiredAfter = Duration.ofMinutes(10);
+
+		/**
+		 * how many points each replica gets on the ring. more points, more even shares.
+		 */
+		private int virtualNodes = 64;
+
+	}
+
+	/**
+	 * keep a copy of each informer cache on local disk, so that a restart only catches up
+	 * on what changed rather than listing everything again. see {@link InformerSnapshots}.
+	 */
+	@Data
+	static class Snapshot {
+
+		/**
+		 * where the snapshots go, one file per resource, e.g. an {@code emptyDir} or a
+		 * persistent volume. unset turns snapshots off.
+		 */
+		private String directory;
+
+		/**
+		 * how often the snapshots are written. they are also written on shutdown.
+		 */
+		private Duration interval = Duration.ofMinutes(1);
+
+	}
+
+	/**
+	 * where the Prometheus scrape and the health check are served. see
+	 * {@link MetricsServer}.
+	 */
+	@Data
+	static class Metrics {
+
+		/**
+		 * the port to listen on. -1 turns the server off; the metrics are still kept.
+		 */
+		private int port = 8080;
+
+	}
+
+}
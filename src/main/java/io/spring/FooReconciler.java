@@ -0,0 +1,559 @@
+package io.spring;
+
+import com.google.gson.JsonObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.custom.V1Patch;
+import io.kubernetes.client.extended.controller.reconciler.Reconciler;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.cache.Caches;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1OwnerReference;
+import io.kubernetes.client.openapi.models.V1Volume;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.kubernetes.client.util.generic.options.PatchOptions;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * the Reconciler won't get an event telling it that the cluster has changed, but instead
+ * it looks at cluster state and determines that something has changed
+ */
+@Slf4j
+class FooReconciler implements Reconciler {
+
+	static final String MANAGED_BY_LABEL = "app.kubernetes.io/managed-by";
+
+	static final String MANAGED_BY = "foo-controller";
+
+	/**
+	 * every {@code ConfigMap} and {@code Deployment} we create carries this label, and the
+	 * informers for those types only ever see objects matching it.
+	 */
+	static final String MANAGED_BY_SELECTOR = MANAGED_BY_LABEL + "=" + MANAGED_BY;
+
+	/**
+	 * how much of the content hash goes into the name of an immutable {@code ConfigMap}.
+	 */
+	private static final int CONFIG_MAP_HASH_LENGTH = 10;
+
+	@FunctionalInterface
+	interface ApiSupplier<T> {
+
+		T get() throws ApiException;
+
+	}
+
+	private final TemplateCache templateCache;
+
+	private final SharedIndexInformer<V1Foo> foos;
+
+	private final SharedIndexInformer<V1ConfigMap> configMaps;
+
+	private final SharedIndexInformer<V1Deployment> deployments;
+
+	private final AppsV1Api appsV1Api;
+
+	private final CoreV1Api coreV1Api;
+
+	private final GenericKubernetesApi<V1Foo, ?> foosApi;
+
+	private final GenericKubernetesApi<V1ConfigMap, ?> configMapsApi;
+
+	private final GenericKubernetesApi<V1Deployment, ?> deploymentsApi;
+
+	private final JSON json;
+
+	private final FooControllerProperties properties;
+
+	private final ReconcileMetrics metrics;
+
+	/**
+	 * where the {@code ConfigMap} is written while the worker writes the
+	 * {@code Deployment}, held to the same deadline. {@code null} when writes are
+	 * sequential.
+	 */
+	private final Executor writes;
+
+	/**
+	 * the resourceVersions of the owned objects the last time a full reconcile found
+	 * nothing to write, by Foo key.
+	 */
+	private final Map<String, String> reconciledVersions = new ConcurrentHashMap<>();
+
+	FooReconciler(TemplateCache templateCache, SharedIndexInformer<V1Foo> foos,
+			SharedIndexInformer<V1ConfigMap> configMaps, SharedIndexInformer<V1Deployment> deployments,
+			AppsV1Api appsV1Api, CoreV1Api coreV1Api, GenericKubernetesApi<V1Foo, ?> foosApi,
+			GenericKubernetesApi<V1ConfigMap, ?> configMapsApi, GenericKubernetesApi<V1Deployment, ?> deploymentsApi,
+			JSON json, FooControllerProperties properties, ReconcileMetrics metrics) {
+		this.templateCache = templateCache;
+		this.foos = foos;
+		this.configMaps = configMaps;
+		this.deployments = deployments;
+		this.appsV1Api = appsV1Api;
+		this.coreV1Api = coreV1Api;
+		this.foosApi = foosApi;
+		this.configMapsApi = configMapsApi;
+		this.deploymentsApi = deploymentsApi;
+		this.json = json;
+		this.properties = properties;
+		this.metrics = metrics;
+		this.writes = properties.getWorkers().isParallelWrites()
+				? ReconcileDeadline.propagating(writes(properties.getWorkers())) : null;
+	}
+
+	private static ExecutorService writes(FooControllerProperties.Workers workers) {
+		Optional<ThreadFactory> threadFactory = workers.isVirtualThreads() ? VirtualThreads.factory("foo-writes-")
+				: Optional.empty();
+		return Executors.newCachedThreadPool(threadFactory.orElseGet(() -> {
+			var platform = new CustomizableThreadFactory("foo-writes-");
+			platform.setDaemon(true);
+			return platform;
+		}));
+	}
+
+	@Override
+	public Result reconcile(Request request) {
+		// create new one on k apply -f foo.yaml
+		String key = request.getNamespace() + '/' + request.getName();
+		long start = System.nanoTime();
+		Result result = new Result(false);
+		ReconcileMetrics.Outcome outcome;
+		try {
+			outcome = reconcile(key, request.getName());
+		} //
+		catch (Throwable e) {
+			result = RetryPolicy.forFailure(key, e);
+			outcome = result.isRequeue() ? ReconcileMetrics.Outcome.REQUEUED : ReconcileMetrics.Outcome.FAILED;
+		}
+		this.metrics.record(outcome, System.nanoTime() - start);
+		return result;
+	}
+
+	private ReconcileMetrics.Outcome reconcile(String key, String requestName) throws ApiException {
+		V1Foo foo = this.foos.getIndexer().getByKey(key);
+		if (foo == null) { // deleted. we use ownerreferences so dont need to do
+			// anything special here
+			this.reconciledVersions.remove(key);
+			return ReconcileMetrics.Outcome.DELETED;
+		}
+
+		String namespace = foo.getMetadata().getNamespace();
+		String deploymentName = "deployment-" + requestName;
+		if (isUpToDate(key, foo, deploymentName)) {
+			return ReconcileMetrics.Outcome.SKIPPED;
+		}
+
+		String pretty = "true";
+		String dryRun = null;
+		String fieldManager = this.properties.getFieldManager();
+		String fieldValidation = "";
+
+		V1ConfigMap configMap = this.metrics.time(ReconcileMetrics.Phase.RENDER,
+				() -> renderConfigMap(foo, "configmap-" + requestName));
+		// the pods only roll when the content they serve changes
+		String contentHash = ContentHash.of(configMap.getData(), foo.getSpec());
+		String configMapName = configMapName(requestName, contentHash);
+		boolean immutable = this.properties.getConfigMaps().isImmutable();
+		if (immutable) {
+			configMap.immutable(true).getMetadata().setName(configMapName);
+		}
+		V1Deployment deployment = this.metrics.time(ReconcileMetrics.Phase.RENDER,
+				() -> renderDeployment(foo, deploymentName, configMapName, contentHash));
+
+		ApiSupplier<Boolean> configMapWrite = () -> this.metrics.time(ReconcileMetrics.Phase.CONFIGMAP,
+				() -> immutable ? createImmutable(configMap)
+						: createOrUpdate(V1ConfigMap.class, configMap, this.configMaps, this.configMapsApi,
+								() -> this.coreV1Api.createNamespacedConfigMap(namespace, configMap, pretty, dryRun,
+										fieldManager, fieldValidation),
+								() -> this.coreV1Api.replaceNamespacedConfigMap(configMapName, namespace, configMap,
+										pretty, dryRun, fieldManager, fieldValidation)));
+		ApiSupplier<Boolean> deploymentWrite = () -> this.metrics.time(ReconcileMetrics.Phase.DEPLOYMENT,
+				() -> createOrUpdate(V1Deployment.class, deployment, this.deployments, this.deploymentsApi,
+						() -> this.appsV1Api.createNamespacedDeployment(namespace, deployment, pretty, dryRun,
+								fieldManager, fieldValidation),
+						() -> this.appsV1Api.replaceNamespacedDeployment(deploymentName, namespace, deployment,
+								pretty, dryRun, fieldManager, fieldValidation)));
+		boolean wrote = rollsForNewContent(deployment, contentHash) ? configMapWrite.get() | deploymentWrite.get()
+				: inParallel(configMapWrite, deploymentWrite);
+		if (immutable) { // now that nothing new points at them
+			this.metrics.time(ReconcileMetrics.Phase.CONFIGMAP, () -> deleteOldConfigMaps(foo, configMapName));
+		}
+
+		this.metrics.time(ReconcileMetrics.Phase.STATUS, () -> updateStatus(foo, contentHash));
+		String versions = wrote ? null : ownedVersions(namespace, configMapName, deploymentName);
+		if (versions == null) { // wait for the cache to show us what we wrote
+			this.reconciledVersions.remove(key);
+		}
+		else {
+			this.reconciledVersions.put(key, versions);
+		}
+		return ReconcileMetrics.Outcome.RECONCILED;
+	}
+
+	/**
+	 * whether the pods are about to roll because what the {@code ConfigMap} serves
+	 * changed. if so, it has to be written first, or the new pods may come up with the old
+	 * content. anything else can be written in any order: a pod whose {@code ConfigMap}
+	 * doesn't exist yet just waits for it.
+	 */
+	private boolean rollsForNewContent(V1Deployment desired, String contentHash) {
+		V1Deployment existing = this.deployments.getIndexer().getByKey(Caches.metaNamespaceKeyFunc(desired));
+		if (existing == null || existing.getSpec() == null || existing.getSpec().getTemplate().getMetadata() == null) {
+			return false;
+		}
+		Map<String, String> annotations = existing.getSpec().getTemplate().getMetadata().getAnnotations();
+		return annotations == null || !contentHash.equals(annotations.get(ContentHash.ANNOTATION));
+	}
+
+	/**
+	 * the first write goes to the {@code writes} pool, the second one runs right here. we
+	 * always wait for both, even when one fails, so that nothing we started is still
+	 * running by the time this key is reconciled again.
+	 */
+	private boolean inParallel(ApiSupplier<Boolean> first, ApiSupplier<Boolean> second) throws ApiException {
+		if (this.writes == null) {
+			return first.get() | second.get();
+		}
+		CompletableFuture<Boolean> firstWrite = CompletableFuture.supplyAsync(() -> {
+			try {
+				return first.get();
+			}
+			catch (ApiException e) {
+				throw new CompletionException(e);
+			}
+		}, this.writes);
+		boolean wrote;
+		try {
+			wrote = second.get();
+		}
+		catch (ApiException | RuntimeException e) {
+			firstWrite.exceptionally(ex -> false).join();
+			throw e;
+		}
+		try {
+			return firstWrite.join() | wrote;
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof ApiException apiException) {
+				throw apiException;
+			}
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw e;
+		}
+	}
+
+	// parameterize configmap
+	V1ConfigMap renderConfigMap(V1Foo foo, String configMapName) {
+		V1ConfigMap configMap = this.templateCache.copyOf(V1ConfigMap.class);
+		String html = "<h1> Hello, " + foo.getSpec().getName() + " </h1>";
+		configMap.getData().put("index.html", html);
+		own(configMap.getMetadata().name(configMapName).namespace(foo.getMetadata().getNamespace()), foo);
+		return configMap;
+	}
+
+	// parameterize deployment
+	V1Deployment renderDeployment(V1Foo foo, String deploymentName, String configMapName,
+			String contentHash) {
+		V1Deployment deployment = this.templateCache.copyOf(V1Deployment.class);
+		own(deployment.getMetadata().name(deploymentName).namespace(foo.getMetadata().getNamespace()), foo);
+		List<V1Volume> volumes = deployment.getSpec().getTemplate().getSpec().getVolumes();
+		Assert.isTrue(volumes.size() == 1, () -> "there should be only one V1Volume");
+		volumes.forEach(vol -> vol.getConfigMap().setName(configMapName));
+		Objects.requireNonNull(deployment.getSpec().getTemplate().getMetadata())
+				.setAnnotations(Map.of(ContentHash.ANNOTATION, contentHash));
+		return deployment;
+	}
+
+	/**
+	 * whether reconciling this Foo right now would be a no-op. the watch uses this to drop
+	 * resyncs before they ever reach the work queue.
+	 */
+	boolean isUpToDate(V1Foo foo) {
+		String name = foo.getMetadata().getName();
+		return isUpToDate(foo.getMetadata().getNamespace() + '/' + name, foo, "deployment-" + name);
+	}
+
+	/**
+	 * {@code configmap-<name>}, or with immutable {@code ConfigMap}s, that followed by the
+	 * start of the content hash, so that every version of the content gets its own.
+	 */
+	private String configMapName(String name, String contentHash) {
+		return this.properties.getConfigMaps().isImmutable()
+				? "configmap-" + name + '-' + contentHash.substring(0, CONFIG_MAP_HASH_LENGTH) : "configmap-" + name;
+	}
+
+	/**
+	 * nothing to do if we've already reconciled this generation of the Foo and the owned
+	 * objects haven't changed (as far as the cache knows) since we last looked at them.
+	 * this keeps a resync down to a couple of map lookups.
+	 */
+	private boolean isUpToDate(String key, V1Foo foo, String deploymentName) {
+		V1FooStatus status = foo.getStatus();
+		if (status == null || !Objects.equals(foo.getMetadata().getGeneration(), status.getObservedGeneration())
+				|| (this.properties.getConfigMaps().isImmutable() && status.getContentHash() == null)) {
+			return false;
+		}
+		String reconciled = this.reconciledVersions.get(key);
+		return reconciled != null && reconciled.equals(ownedVersions(foo.getMetadata().getNamespace(),
+				configMapName(foo.getMetadata().getName(), status.getContentHash()), deploymentName));
+	}
+
+	private String ownedVersions(String namespace, String configMapName, String deploymentName) {
+		V1ConfigMap configMap = this.configMaps.getIndexer().getByKey(namespace + '/' + configMapName);
+		V1Deployment deployment = this.deployments.getIndexer().getByKey(namespace + '/' + deploymentName);
+		if (configMap == null || deployment == null) {
+			return null;
+		}
+		return configMap.getMetadata().getResourceVersion() + '/' + deployment.getMetadata().getResourceVersion();
+	}
+
+	/**
+	 * records what we reconciled through the status subresource. the resulting watch event
+	 * comes right back to us, and is then answered by {@link #isUpToDate}.
+	 * @return whether we wrote (or tried to write) the status
+	 */
+	private boolean updateStatus(V1Foo foo, String contentHash) {
+		Long generation = foo.getMetadata().getGeneration();
+		V1FooStatus status = foo.getStatus();
+		if (status != null && Objects.equals(generation, status.getObservedGeneration())
+				&& Objects.equals(contentHash, status.getContentHash())) {
+			return false;
+		}
+		// never mutate the instance that lives in the informer cache
+		V1Foo copy = this.json.getGson().fromJson(this.json.getGson().toJsonTree(foo), V1Foo.class);
+		if (copy.getStatus() == null) {
+			copy.setStatus(new V1FooStatus());
+		}
+		copy.getStatus().observedGeneration(generation).contentHash(contentHash);
+		var response = this.foosApi.updateStatus(copy, V1Foo::getStatus);
+		if (!response.isSuccess()) { // most likely a 409: a newer Foo is on its way to us
+			log.info("could not update the status of " + foo.getMetadata().getName() + ". got code "
+					+ response.getHttpStatusCode());
+		}
+		return true;
+	}
+
+	/**
+	 * writes only if the informer cache says the object is missing or differs from what
+	 * we want, so a steady-state reconcile makes no API calls at all.
+	 * @return whether we wrote (or tried to write) anything
+	 */
+	private <T extends KubernetesObject> boolean createOrUpdate(Class<T> clazz, T desired,
+			SharedIndexInformer<T> informer, GenericKubernetesApi<T, ?> api, ApiSupplier<T> creator,
+			ApiSupplier<T> updater) throws ApiException {
+		T existing = informer.getIndexer().getByKey(Caches.metaNamespaceKeyFunc(desired));
+		JsonObject owned = this.json.getGson().toJsonTree(desired).getAsJsonObject();
+		boolean leavesReplicas = leavesReplicas(desired);
+		if (leavesReplicas) {
+			owned.getAsJsonObject("spec").remove("replicas");
+		}
+		if (existing != null && SemanticDiff.matches(owned, this.json.getGson().toJsonTree(existing))) {
+			log.debug("the " + clazz.getName() + " " + existing.getMetadata().getName() + " is up to date.");
+			return false;
+		}
+		if (this.properties.getWriteMode() == FooControllerProperties.WriteMode.APPLY) {
+			if (existing == null && leavesReplicas && create(clazz, creator)) {
+				return true;
+			}
+			apply(clazz, desired.getMetadata(), owned, api);
+			return true;
+		}
+		if (existing != null) {
+			// optimistic concurrency: fail with a 409 if someone else got there first
+			desired.getMetadata().setResourceVersion(existing.getMetadata().getResourceVersion());
+			if (leavesReplicas) { // a replace without them would reset them to 1
+				((V1Deployment) desired).getSpec().setReplicas(((V1Deployment) existing).getSpec().getReplicas());
+			}
+			update(clazz, updater);
+			return true;
+		}
+		if (!create(clazz, creator)) {
+			log.info("the " + clazz.getName() + " already exists. Replacing.");
+			update(clazz, updater);
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether we created it, rather than finding it already there because the
+	 * cache hasn't caught up yet
+	 */
+	private static <T> boolean create(Class<T> clazz, ApiSupplier<T> creator) throws ApiException {
+		try {
+			creator.get();
+			log.info("It worked! we created a new " + clazz.getName() + "!");
+			return true;
+		} //
+		catch (ApiException throwable) {
+			if (throwable.getCode() != 409) {
+				throw throwable;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * an immutable {@code ConfigMap} is never updated: if one by that name exists, it
+	 * already has the content its name stands for.
+	 * @return whether we wrote (or tried to write) it
+	 */
+	private boolean createImmutable(V1ConfigMap configMap) throws ApiException {
+		if (this.configMaps.getIndexer().getByKey(Caches.metaNamespaceKeyFunc(configMap)) != null) {
+			return false;
+		}
+		try {
+			this.coreV1Api.createNamespacedConfigMap(configMap.getMetadata().getNamespace(), configMap, null, null,
+					this.properties.getFieldManager(), null);
+			log.info("created the immutable ConfigMap " + configMap.getMetadata().getName());
+		}
+		catch (ApiException e) {
+			if (e.getCode() != 409) {
+				throw e;
+			}
+			// already exists, the cache hasn't caught up yet
+		}
+		return true;
+	}
+
+	/**
+	 * deletes the {@code ConfigMap}s of this Foo that aren't the current one, except for
+	 * the newest few, which the pods of a rollout in progress (or of a rollback) may still
+	 * need. whatever the Foo still owns is deleted along with it anyway.
+	 * @return whether we deleted (or tried to delete) any
+	 */
+	private boolean deleteOldConfigMaps(V1Foo foo, String current) throws ApiException {
+		String namespace = foo.getMetadata().getNamespace();
+		String uid = foo.getMetadata().getUid();
+		List<V1ConfigMap> old = new ArrayList<>();
+		for (V1ConfigMap configMap : this.configMaps.getIndexer().byIndex(Caches.NAMESPACE_INDEX, namespace)) {
+			V1ObjectMeta metadata = configMap.getMetadata();
+			if (!current.equals(metadata.getName()) && metadata.getOwnerReferences() != null
+					&& metadata.getOwnerReferences().stream().anyMatch(owner -> uid.equals(owner.getUid()))) {
+				old.add(configMap);
+			}
+		}
+		int keep = Math.max(this.properties.getConfigMaps().getKeep() - 1, 0);
+		if (old.size() <= keep) {
+			return false;
+		}
+		// newest first. one whose age we don't know counts as the newest of all: better to
+		// keep it a while longer than to delete what a rollout may still need
+		old.sort(Comparator.comparing((V1ConfigMap configMap) -> configMap.getMetadata().getCreationTimestamp(),
+				Comparator.nullsFirst(Comparator.reverseOrder())));
+		for (V1ConfigMap configMap : old.subList(keep, old.size())) {
+			String name = configMap.getMetadata().getName();
+			var response = this.configMapsApi.delete(namespace, name);
+			if (!response.isSuccess() && response.getHttpStatusCode() != 404) {
+				response.throwsApiException();
+			}
+			log.info("deleted the old ConfigMap " + name);
+		}
+		return true;
+	}
+
+	/**
+	 * unless we're told to {@code own-replicas}, the replica count of a {@code Deployment}
+	 * belongs to whoever scales it, usually an HPA. we then never apply it nor count it as
+	 * drift, and a replace carries over the live count. a new {@code Deployment} still
+	 * starts with the template's count: in {@code apply} mode it is created with a plain
+	 * POST rather than applied. an apply would make the count ours, and the next apply,
+	 * which leaves it out, would hand it back to the API server's default of one.
+	 */
+	private boolean leavesReplicas(KubernetesObject desired) {
+		return desired instanceof V1Deployment deployment && deployment.getSpec() != null
+				&& !this.properties.isOwnReplicas();
+	}
+
+	/**
+	 * a single server-side apply PATCH: idempotent, needs no resourceVersion, and only
+	 * sends (and takes ownership of) the fields we actually render. {@code force} takes
+	 * those fields over from anyone else who set them, which is why what we don't mean to
+	 * own has to be left out of {@code owned} altogether.
+	 */
+	private <T extends KubernetesObject> void apply(Class<T> clazz, V1ObjectMeta metadata, JsonObject owned,
+			GenericKubernetesApi<T, ?> api) throws ApiException {
+		var options = new PatchOptions();
+		options.setFieldManager(this.properties.getFieldManager());
+		options.setForce(true);
+		api.patch(metadata.getNamespace(), metadata.getName(), V1Patch.PATCH_FORMAT_APPLY_YAML,
+				new V1Patch(this.json.getGson().toJson(owned)), options).throwsApiException();
+		log.info("successfully applied the " + clazz.getName());
+	}
+
+	private static <T> void update(Class<T> clazz, ApiSupplier<T> updater) throws ApiException {
+		updater.get();
+		log.info("successfully updated the " + clazz.getName());
+	}
+
+	/**
+	 * the Foo that controls an object, going by the owner reference {@link #own} gave it,
+	 * or {@code null} if it isn't one of ours.
+	 */
+	static Request ownerOf(KubernetesObject owned) {
+		List<V1OwnerReference> owners = owned.getMetadata().getOwnerReferences();
+		if (owners == null) {
+			return null;
+		}
+		for (V1OwnerReference owner : owners) {
+			if (Boolean.TRUE.equals(owner.getController()) && "Foo".equals(owner.getKind())
+					&& owner.getApiVersion() != null && owner.getApiVersion().startsWith("spring.io/")) {
+				return new Request(owned.getMetadata().getNamespace(), owner.getName());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * whether an update to an object we own could have changed anything we render. most
+	 * {@code Deployment} updates are the controller manager reporting on its status, which
+	 * moves neither the generation (that follows the spec) nor the labels and annotations.
+	 * objects without a generation, like {@code ConfigMap}s, have no status either, so
+	 * every update of theirs counts.
+	 */
+	static boolean changesWhatWeRender(KubernetesObject oldOwned, KubernetesObject owned) {
+		V1ObjectMeta before = oldOwned.getMetadata();
+		V1ObjectMeta after = owned.getMetadata();
+		if (Objects.equals(before.getResourceVersion(), after.getResourceVersion())) {
+			return false;
+		}
+		return after.getGeneration() == null || !Objects.equals(before.getGeneration(), after.getGeneration())
+				|| !Objects.equals(before.getLabels(), after.getLabels())
+				|| !Objects.equals(before.getAnnotations(), after.getAnnotations())
+				|| !Objects.equals(before.getOwnerReferences(), after.getOwnerReferences());
+	}
+
+	static V1ObjectMeta own(V1ObjectMeta metadata, V1Foo foo) {
+		Assert.notNull(foo, () -> "the V1Foo must not be null");
+		return metadata.putLabelsItem(MANAGED_BY_LABEL, MANAGED_BY)
+				.addOwnerReferencesItem(new V1OwnerReference().kind(foo.getKind()).apiVersion(foo.getApiVersion())
+						.controller(true).uid(foo.getMetadata().getUid()).name(foo.getMetadata().getName()));
+	}
+
+}
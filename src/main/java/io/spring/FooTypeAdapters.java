@@ -0,0 +1,291 @@
+package io.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooSpec;
+import io.spring.models.V1FooStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * hand-written {@link TypeAdapter}s for our own models, in place of the reflective ones
+ * Gson would otherwise build for them. they read and write the stream field by field,
+ * with no reflection and no {@code JsonElement} tree in between, and what they write is
+ * exactly what the reflective adapters write, field order included. unknown fields are
+ * skipped, as before.
+ * <p>
+ * the metadata is left to whatever adapters the client has for it.
+ */
+final class FooTypeAdapters implements TypeAdapterFactory {
+
+	/**
+	 * swaps {@code json}'s {@link Gson} for one that knows about these adapters, and keeps
+	 * everything else the client had registered.
+	 */
+	static JSON register(JSON json) {
+		return json.setGson(json.getGson().newBuilder().registerTypeAdapterFactory(new FooTypeAdapters()).create());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		var rawType = type.getRawType();
+		if (rawType == V1Foo.class) {
+			return (TypeAdapter<T>) new FooAdapter(gson);
+		}
+		if (rawType == V1FooList.class) {
+			return (TypeAdapter<T>) new FooListAdapter(gson);
+		}
+		if (rawType == V1FooSpec.class) {
+			return (TypeAdapter<T>) new FooSpecAdapter();
+		}
+		if (rawType == V1FooStatus.class) {
+			return (TypeAdapter<T>) new FooStatusAdapter();
+		}
+		return null;
+	}
+
+	private static final class FooAdapter extends TypeAdapter<V1Foo> {
+
+		private final TypeAdapter<V1ObjectMeta> metadata;
+
+		private final TypeAdapter<V1FooSpec> spec;
+
+		private final TypeAdapter<V1FooStatus> status;
+
+		FooAdapter(Gson gson) {
+			this.metadata = gson.getAdapter(V1ObjectMeta.class);
+			this.spec = gson.getAdapter(V1FooSpec.class);
+			this.status = gson.getAdapter(V1FooStatus.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, V1Foo foo) throws IOException {
+			if (foo == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			writeField(out, "apiVersion", foo.getApiVersion());
+			writeField(out, "kind", foo.getKind());
+			writeField(out, "metadata", this.metadata, foo.getMetadata());
+			writeField(out, "spec", this.spec, foo.getSpec());
+			writeField(out, "status", this.status, foo.getStatus());
+			out.endObject();
+		}
+
+		@Override
+		public V1Foo read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			var foo = new V1Foo();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "apiVersion" -> foo.setApiVersion(readString(in));
+					case "kind" -> foo.setKind(readString(in));
+					case "metadata" -> foo.setMetadata(this.metadata.read(in));
+					case "spec" -> foo.setSpec(this.spec.read(in));
+					case "status" -> foo.setStatus(this.status.read(in));
+					default -> in.skipValue();
+				}
+			}
+			in.endObject();
+			return foo;
+		}
+
+	}
+
+	private static final class FooListAdapter extends TypeAdapter<V1FooList> {
+
+		private final TypeAdapter<V1Foo> foo;
+
+		private final TypeAdapter<V1ListMeta> metadata;
+
+		FooListAdapter(Gson gson) {
+			this.foo = gson.getAdapter(V1Foo.class);
+			this.metadata = gson.getAdapter(V1ListMeta.class);
+		}
+
+		@Override
+		public void write(JsonWriter out, V1FooList list) throws IOException {
+			if (list == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			writeField(out, "apiVersion", list.getApiVersion());
+			if (list.getItems() != null) {
+				out.name("items").beginArray();
+				for (var item : list.getItems()) {
+					this.foo.write(out, item);
+				}
+				out.endArray();
+			}
+			else if (out.getSerializeNulls()) {
+				out.name("items").nullValue();
+			}
+			writeField(out, "kind", list.getKind());
+			writeField(out, "metadata", this.metadata, list.getMetadata());
+			out.endObject();
+		}
+
+		@Override
+		public V1FooList read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			var list = new V1FooList();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "apiVersion" -> list.setApiVersion(readString(in));
+					case "items" -> list.setItems(readItems(in));
+					case "kind" -> list.setKind(readString(in));
+					case "metadata" -> list.setMetadata(this.metadata.read(in));
+					default -> in.skipValue();
+				}
+			}
+			in.endObject();
+			return list;
+		}
+
+		private List<V1Foo> readItems(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			var items = new ArrayList<V1Foo>();
+			in.beginArray();
+			while (in.hasNext()) {
+				items.add(this.foo.read(in));
+			}
+			in.endArray();
+			return items;
+		}
+
+	}
+
+	private static final class FooSpecAdapter extends TypeAdapter<V1FooSpec> {
+
+		@Override
+		public void write(JsonWriter out, V1FooSpec spec) throws IOException {
+			if (spec == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			writeField(out, "name", spec.getName());
+			out.endObject();
+		}
+
+		@Override
+		public V1FooSpec read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			var spec = new V1FooSpec();
+			in.beginObject();
+			while (in.hasNext()) {
+				if ("name".equals(in.nextName())) {
+					spec.setName(readString(in));
+				}
+				else {
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return spec;
+		}
+
+	}
+
+	private static final class FooStatusAdapter extends TypeAdapter<V1FooStatus> {
+
+		@Override
+		public void write(JsonWriter out, V1FooStatus status) throws IOException {
+			if (status == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			writeField(out, "name", status.getName());
+			if (status.getObservedGeneration() != null || out.getSerializeNulls()) {
+				out.name("observedGeneration").value(status.getObservedGeneration());
+			}
+			writeField(out, "contentHash", status.getContentHash());
+			out.endObject();
+		}
+
+		@Override
+		public V1FooStatus read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			var status = new V1FooStatus();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "name" -> status.setName(readString(in));
+					case "observedGeneration" -> status.setObservedGeneration(readLong(in));
+					case "contentHash" -> status.setContentHash(readString(in));
+					default -> in.skipValue();
+				}
+			}
+			in.endObject();
+			return status;
+		}
+
+	}
+
+	/**
+	 * like the reflective adapters, a null is left out unless the writer was asked to keep
+	 * them.
+	 */
+	private static void writeField(JsonWriter out, String name, String value) throws IOException {
+		if (value != null || out.getSerializeNulls()) {
+			out.name(name).value(value);
+		}
+	}
+
+	private static <T> void writeField(JsonWriter out, String name, TypeAdapter<T> adapter, T value) throws IOException {
+		if (value != null || out.getSerializeNulls()) {
+			out.name(name);
+			adapter.write(out, value);
+		}
+	}
+
+	private static String readString(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+	}
+
+	private static Long readLong(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextLong();
+	}
+
+}
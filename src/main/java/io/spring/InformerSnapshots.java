@@ -0,0 +1,406 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * keeps a copy of each informer cache on local disk, so that after a restart the informers
+ * start from it and only catch up on what changed since, rather than listing everything
+ * again. the first LIST an informer makes is answered from its snapshot, and its watch
+ * then resumes from the snapshot's {@code resourceVersion}. if that version is too old
+ * for the API server, the watch fails with a 410 and the informer relists, just as it
+ * would have without a snapshot.
+ * <p>
+ * a snapshot must never claim to be newer than what it holds, or the events in between
+ * would be lost for good. the informer's own {@code resourceVersion} runs ahead of its
+ * cache, so we go by the newest version our event handler has seen instead: handlers hear
+ * about a change only after it is in the cache. a LIST and every watch bookmark say that
+ * nothing before their version is missing either, but only once the informer has worked
+ * through what it was handed before them, so they only count from the save after the one
+ * that first saw them. objects deleted while we were down are dropped once a relist
+ * happens.
+ * <p>
+ * with several namespaces, each watched on its own, every one of them has a version of
+ * its own, and a snapshot is only as new as the one furthest behind. until each namespace
+ * has a version, quiet ones included, no snapshot is taken.
+ * <p>
+ * a snapshot file is a header (magic, format, the scope it was taken for, the
+ * {@code resourceVersion}, the number of objects) followed by one length-prefixed JSON
+ * record per object. it is written to a temporary file and moved into place, and
+ * memory-mapped to be read back. a snapshot taken for a different scope, or by a version
+ * of us with a different {@link #FORMAT}, is ignored.
+ */
+@Slf4j
+class InformerSnapshots implements AutoCloseable {
+
+	private static final int MAGIC = 0x464f4f53;
+
+	/**
+	 * bump this whenever {@link CacheTransforms} keeps different fields.
+	 */
+	static final int FORMAT = 1;
+
+	private final FooControllerProperties.Snapshot properties;
+
+	private final JSON json;
+
+	private final MeterRegistry meterRegistry;
+
+	private final List<Snapshot<?, ?>> snapshots = new CopyOnWriteArrayList<>();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+	InformerSnapshots(FooControllerProperties.Snapshot properties, JSON json, MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.json = json;
+		this.meterRegistry = meterRegistry;
+	}
+
+	private boolean isEnabled() {
+		return StringUtils.hasText(this.properties.getDirectory());
+	}
+
+	/**
+	 * an informer that starts from the snapshot of {@code resource}, if there is one, and
+	 * whose cache is snapshotted from now on. {@code scope} is anything that tells one set
+	 * of watched objects from another. if a scope has several namespaces, each watched
+	 * separately, they must all be in {@code namespaces}: their events interleave, so the
+	 * snapshot can only be as new as the namespace that is furthest behind. otherwise
+	 * {@code namespaces} is empty.
+	 */
+	<ApiType extends KubernetesObject, ApiListType extends KubernetesListObject> SharedIndexInformer<ApiType> informerFor(
+			SharedInformerFactory sharedInformerFactory, String resource,
+			ListerWatcher<ApiType, ApiListType> listerWatcher, Class<ApiType> apiTypeClass,
+			BiFunction<List<ApiType>, V1ListMeta, ApiListType> newList, String scope, List<String> namespaces) {
+		if (!isEnabled()) {
+			return sharedInformerFactory.sharedIndexInformerFor(listerWatcher, apiTypeClass, 0);
+		}
+		var snapshot = new Snapshot<>(resource, listerWatcher, apiTypeClass, newList,
+				resource + ' ' + scope, namespaces);
+		var informer = sharedInformerFactory.sharedIndexInformerFor(snapshot, apiTypeClass, 0);
+		informer.addEventHandler(snapshot);
+		snapshot.informer = informer;
+		this.snapshots.add(snapshot);
+		return informer;
+	}
+
+	void start() {
+		if (!isEnabled()) {
+			return;
+		}
+		var interval = this.properties.getInterval().toMillis();
+		this.executor.scheduleWithFixedDelay(this::save, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	void save() {
+		for (var snapshot : this.snapshots) {
+			try {
+				snapshot.save();
+			}
+			catch (Exception e) {
+				log.warn("could not snapshot the " + snapshot.resource + " cache. Keeping the previous snapshot.", e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		this.executor.shutdownNow();
+		// one last time, so that we come back as close to where we left as possible
+		save();
+	}
+
+	// resourceVersions are meant to be opaque, but every API server out there hands out
+	// etcd's revision, which only ever goes up. anything else, and we take no snapshots
+	private static Long version(String resourceVersion) {
+		try {
+			return resourceVersion != null ? Long.parseLong(resourceVersion) : null;
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String string(ByteBuffer buffer) {
+		var length = buffer.getInt();
+		var string = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+		buffer.position(buffer.position() + length);
+		return string;
+	}
+
+	private static void string(DataOutputStream out, String string) throws IOException {
+		var bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * the snapshot of one informer: it answers the informer's first LIST, and hears about
+	 * every change the informer makes to its cache.
+	 */
+	private final class Snapshot<ApiType extends KubernetesObject, ApiListType extends KubernetesListObject>
+			implements ListerWatcher<ApiType, ApiListType>, ResourceEventHandler<ApiType> {
+
+		private final String resource;
+
+		private final ListerWatcher<ApiType, ApiListType> delegate;
+
+		private final Class<ApiType> apiTypeClass;
+
+		private final BiFunction<List<ApiType>, V1ListMeta, ApiListType> newList;
+
+		private final String scope;
+
+		/**
+		 * the namespaces watched separately, or none if there is just the one watch.
+		 */
+		private final List<String> namespaces;
+
+		private final Path path;
+
+		private final AtomicBoolean loaded = new AtomicBoolean();
+
+		/**
+		 * the newest {@code resourceVersion} the cache is known to be up to, by namespace.
+		 */
+		private final Map<String, Long> seen = new ConcurrentHashMap<>();
+
+		/**
+		 * the newest {@code resourceVersion} of a LIST or bookmark, by namespace: everything
+		 * before it has been handed to the informer, but may not be in its cache yet.
+		 */
+		private final Map<String, Long> handedOver = new ConcurrentHashMap<>();
+
+		/**
+		 * what {@link #handedOver} was at the last save, and is in the cache by the next.
+		 */
+		private Map<String, Long> settled = Map.of();
+
+		private volatile SharedIndexInformer<ApiType> informer;
+
+		private String saved;
+
+		Snapshot(String resource, ListerWatcher<ApiType, ApiListType> delegate, Class<ApiType> apiTypeClass,
+				BiFunction<List<ApiType>, V1ListMeta, ApiListType> newList, String scope, List<String> namespaces) {
+			this.resource = resource;
+			this.delegate = delegate;
+			this.apiTypeClass = apiTypeClass;
+			this.newList = newList;
+			this.scope = scope;
+			this.namespaces = List.copyOf(namespaces);
+			this.path = Path.of(properties.getDirectory(), resource + ".snapshot");
+		}
+
+		@Override
+		public ApiListType list(CallGeneratorParams params) throws ApiException {
+			ApiListType list = null;
+			if (this.loaded.compareAndSet(false, true)) {
+				list = load();
+			}
+			if (list == null) {
+				list = this.delegate.list(params);
+			}
+			// every namespace, even one with nothing in it
+			var resourceVersion = version(list.getMetadata().getResourceVersion());
+			if (resourceVersion != null) {
+				for (var namespace : this.namespaces.isEmpty() ? List.of("") : this.namespaces) {
+					this.handedOver.merge(namespace, resourceVersion, Math::max);
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public Watchable<ApiType> watch(CallGeneratorParams params) throws ApiException {
+			var watch = this.delegate.watch(params);
+			return new Watchable<>() {
+
+				@Override
+				public boolean hasNext() {
+					return watch.hasNext();
+				}
+
+				@Override
+				public Watch.Response<ApiType> next() {
+					var response = watch.next();
+					if ("BOOKMARK".equals(response.type) && response.object != null) {
+						var metadata = response.object.getMetadata();
+						var resourceVersion = version(metadata.getResourceVersion());
+						if (resourceVersion != null) {
+							handedOver.merge(namespaceOf(metadata), resourceVersion, Math::max);
+						}
+					}
+					return response;
+				}
+
+				@Override
+				public Iterator<Watch.Response<ApiType>> iterator() {
+					return this;
+				}
+
+				@Override
+				public void close() throws IOException {
+					watch.close();
+				}
+
+			};
+		}
+
+		@Override
+		public void onAdd(ApiType object) {
+			seen(object);
+		}
+
+		@Override
+		public void onUpdate(ApiType oldObject, ApiType newObject) {
+			seen(newObject);
+		}
+
+		@Override
+		public void onDelete(ApiType object, boolean deletedFinalStateUnknown) {
+			seen(object);
+		}
+
+		private void seen(ApiType object) {
+			var metadata = object.getMetadata();
+			var resourceVersion = version(metadata.getResourceVersion());
+			if (resourceVersion != null) {
+				this.seen.merge(namespaceOf(metadata), resourceVersion, Math::max);
+			}
+		}
+
+		private String namespaceOf(V1ObjectMeta metadata) {
+			return this.namespaces.isEmpty() ? "" : Objects.toString(metadata.getNamespace(), "");
+		}
+
+		// what was handed over a save ago has made it into the cache since
+		private void settle() {
+			this.settled.forEach((namespace, version) -> this.seen.merge(namespace, version, Math::max));
+			this.settled = Map.copyOf(this.handedOver);
+		}
+
+		private String resourceVersion() {
+			if (this.namespaces.isEmpty()) {
+				return this.seen.isEmpty() ? null : String.valueOf(Collections.max(this.seen.values()));
+			}
+			if (!this.seen.keySet().containsAll(this.namespaces)) {
+				return null;
+			}
+			return String.valueOf(this.namespaces.stream().mapToLong(this.seen::get).min().getAsLong());
+		}
+
+		private ApiListType load() {
+			var sample = Timer.start(meterRegistry);
+			try (var channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+				var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT || !this.scope.equals(string(buffer))) {
+					log.info("ignoring " + this.path + ": it was taken by another version, or for another scope");
+					return null;
+				}
+				var resourceVersion = string(buffer);
+				var count = buffer.getInt();
+				var items = new ArrayList<ApiType>(count);
+				for (var i = 0; i < count; i++) {
+					items.add(json.deserialize(string(buffer), this.apiTypeClass));
+				}
+				sample.stop(timer("load"));
+				log.info("starting the " + this.resource + " cache from " + this.path + ": " + count
+						+ " objects at resourceVersion " + resourceVersion);
+				return this.newList.apply(items, new V1ListMeta().resourceVersion(resourceVersion));
+			}
+			catch (NoSuchFileException e) {
+				return null;
+			}
+			catch (IOException | RuntimeException e) {
+				log.warn("could not read " + this.path + ". Listing the " + this.resource + " instead.", e);
+				return null;
+			}
+		}
+
+		private synchronized void save() throws IOException {
+			var informer = this.informer;
+			if (informer == null || !informer.hasSynced()) {
+				return;
+			}
+			settle();
+			// the version first: whatever the cache holds by the time we copy it is at least that new
+			var resourceVersion = resourceVersion();
+			if (resourceVersion == null || resourceVersion.equals(this.saved)) {
+				return;
+			}
+			var items = informer.getIndexer().list();
+			var sample = Timer.start(meterRegistry);
+			Files.createDirectories(this.path.getParent());
+			var temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+			try (var file = new FileOutputStream(temporary.toFile());
+					var out = new DataOutputStream(new BufferedOutputStream(file))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT);
+				string(out, this.scope);
+				string(out, resourceVersion);
+				out.writeInt(items.size());
+				for (var item : items) {
+					string(out, json.serialize(item));
+				}
+				out.flush();
+				file.getFD().sync();
+			}
+			Files.move(temporary, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			this.saved = resourceVersion;
+			sample.stop(timer("save"));
+			log.debug("saved " + items.size() + " " + this.resource + " at resourceVersion " + resourceVersion
+					+ " to " + this.path);
+		}
+
+		private Timer timer(String operation) {
+			return Timer.builder("foo.informer.snapshot") //
+					.description("how long it takes to write or read an informer cache snapshot") //
+					.tag("resource", this.resource) //
+					.tag("operation", operation) //
+					.register(meterRegistry);
+		}
+
+	}
+
+}
@@ -0,0 +1,177 @@
+package io.spring;
+
+import io.kubernetes.client.extended.workqueue.DelayingQueue;
+import io.kubernetes.client.extended.workqueue.RateLimitingQueue;
+import io.kubernetes.client.extended.workqueue.ratelimiter.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the same thing as {@code DefaultRateLimitingQueue}, plus metrics: how deep the queue is
+ * ({@code foo.workqueue.depth}), how long items sit in it between becoming ready and being
+ * picked up by a worker ({@code foo.workqueue.latency}), and how often items come back
+ * rate limited ({@code foo.workqueue.retries}). an item that is added again while it is
+ * still waiting keeps its original ready time, just like the queue keeps only one copy of
+ * it. on top of a {@link LanedWorkQueue}, the depth of each lane is
+ * {@code foo.workqueue.lane.depth}.
+ */
+class InstrumentedWorkQueue<T> implements RateLimitingQueue<T> {
+
+	private final DelayingQueue<T> delegate;
+
+	private final RateLimiter<T> rateLimiter;
+
+	private final Map<T, Long> readyAt = new ConcurrentHashMap<>();
+
+	private final Timer latency;
+
+	private final Counter retries;
+
+	InstrumentedWorkQueue(DelayingQueue<T> delegate, RateLimiter<T> rateLimiter, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.rateLimiter = rateLimiter;
+		this.latency = Timer.builder("foo.workqueue.latency") //
+				.description("time between an item being ready and a worker picking it up") //
+				.publishPercentileHistogram() //
+				.register(meterRegistry);
+		this.retries = Counter.builder("foo.workqueue.retries") //
+				.description("items put back on the queue with a rate limited delay") //
+				.register(meterRegistry);
+		Gauge.builder("foo.workqueue.depth", delegate, DelayingQueue::length) //
+				.description("items waiting for a worker") //
+				.register(meterRegistry);
+		if (delegate instanceof LanedWorkQueue<T> lanes) {
+			for (var lane : LanedWorkQueue.Lane.values()) {
+				Gauge.builder("foo.workqueue.lane.depth", lanes, q -> q.length(lane)) //
+						.description("items waiting for a worker, by lane") //
+						.tag("lane", lane.name().toLowerCase(Locale.ROOT)) //
+						.register(meterRegistry);
+			}
+		}
+	}
+
+	/**
+	 * this same queue, except that everything added through it goes into {@code lane} of
+	 * the {@link LanedWorkQueue} underneath.
+	 */
+	DelayingQueue<T> lane(LanedWorkQueue.Lane lane) {
+		Assert.state(this.delegate instanceof LanedWorkQueue, "there are no lanes in this queue");
+		var entrance = ((LanedWorkQueue<T>) this.delegate).lane(lane);
+		return new DelayingQueue<>() {
+
+			@Override
+			public void add(T item) {
+				InstrumentedWorkQueue.this.add(item, entrance);
+			}
+
+			@Override
+			public void addAfter(T item, Duration duration) {
+				InstrumentedWorkQueue.this.addAfter(item, duration, entrance);
+			}
+
+			@Override
+			public int length() {
+				return InstrumentedWorkQueue.this.length();
+			}
+
+			@Override
+			public T get() throws InterruptedException {
+				return InstrumentedWorkQueue.this.get();
+			}
+
+			@Override
+			public void done(T item) {
+				InstrumentedWorkQueue.this.done(item);
+			}
+
+			@Override
+			public void shutDown() {
+				InstrumentedWorkQueue.this.shutDown();
+			}
+
+			@Override
+			public boolean isShuttingDown() {
+				return InstrumentedWorkQueue.this.isShuttingDown();
+			}
+
+		};
+	}
+
+	@Override
+	public void add(T item) {
+		add(item, this.delegate);
+	}
+
+	@Override
+	public void addAfter(T item, Duration duration) {
+		addAfter(item, duration, this.delegate);
+	}
+
+	private void add(T item, DelayingQueue<T> entrance) {
+		this.readyAt.merge(item, System.nanoTime(), Math::min);
+		entrance.add(item);
+	}
+
+	private void addAfter(T item, Duration duration, DelayingQueue<T> entrance) {
+		this.readyAt.merge(item, System.nanoTime() + Math.max(0, duration.toNanos()), Math::min);
+		entrance.addAfter(item, duration);
+	}
+
+	@Override
+	public void addRateLimited(T item) {
+		this.retries.increment();
+		addAfter(item, this.rateLimiter.when(item));
+	}
+
+	@Override
+	public void forget(T item) {
+		this.rateLimiter.forget(item);
+	}
+
+	@Override
+	public int numRequeues(T item) {
+		return this.rateLimiter.numRequeues(item);
+	}
+
+	@Override
+	public T get() throws InterruptedException {
+		T item = this.delegate.get();
+		if (item != null) {
+			Long ready = this.readyAt.remove(item);
+			if (ready != null) {
+				this.latency.record(Math.max(0, System.nanoTime() - ready), TimeUnit.NANOSECONDS);
+			}
+		}
+		return item;
+	}
+
+	@Override
+	public int length() {
+		return this.delegate.length();
+	}
+
+	@Override
+	public void done(T item) {
+		this.delegate.done(item);
+	}
+
+	@Override
+	public void shutDown() {
+		this.delegate.shutDown();
+	}
+
+	@Override
+	public boolean isShuttingDown() {
+		return this.delegate.isShuttingDown();
+	}
+
+}
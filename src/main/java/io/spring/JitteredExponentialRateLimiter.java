@@ -0,0 +1,58 @@
+package io.spring;
+
+import io.kubernetes.client.extended.workqueue.ratelimiter.RateLimiter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * per-item exponential backoff: {@code baseDelay * 2^failures}, capped at
+ * {@code maxDelay}, with up to {@code jitter} of it taken off at random so that items
+ * that failed together don't all come back together.
+ */
+class JitteredExponentialRateLimiter<T> implements RateLimiter<T> {
+
+	private final Map<T, Integer> failures = new ConcurrentHashMap<>();
+
+	private final Duration baseDelay;
+
+	private final Duration maxDelay;
+
+	private final double jitter;
+
+	JitteredExponentialRateLimiter(Duration baseDelay, Duration maxDelay, double jitter) {
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.jitter = jitter;
+	}
+
+	@Override
+	public Duration when(T item) {
+		int exponent = this.failures.merge(item, 1, Integer::sum) - 1;
+		long maxNanos = this.maxDelay.toNanos();
+		// 2^62 nanos is well past any sane maxDelay, and keeps the shift from overflowing
+		long nanos = exponent >= 62 ? maxNanos
+				: Math.min(maxNanos, saturatedMultiply(this.baseDelay.toNanos(), 1L << exponent));
+		long jitterNanos = (long) (nanos * this.jitter * ThreadLocalRandom.current().nextDouble());
+		return Duration.ofNanos(nanos - jitterNanos);
+	}
+
+	@Override
+	public void forget(T item) {
+		this.failures.remove(item);
+	}
+
+	@Override
+	public int numRequeues(T item) {
+		return this.failures.getOrDefault(item, 0);
+	}
+
+	private static long saturatedMultiply(long a, long b) {
+		long high = Math.multiplyHigh(a, b);
+		long low = a * b;
+		return (high == 0 && low >= 0) ? low : Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,67 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watchable;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.kubernetes.client.util.generic.options.ListOptions;
+
+/**
+ * lists and watches only the objects carrying a given label, in one namespace or (with a
+ * {@code null} namespace) across all of them. we use this for the {@code ConfigMap}s and
+ * {@code Deployment}s we own, so that the informer caches don't fill up with every object
+ * in the cluster. given a {@link ProtobufLister}, the LIST goes through it, and only the
+ * WATCH is JSON.
+ */
+class LabelSelectingListerWatcher<ApiType extends KubernetesObject, ApiListType extends KubernetesListObject>
+		implements ListerWatcher<ApiType, ApiListType> {
+
+	private final GenericKubernetesApi<ApiType, ApiListType> api;
+
+	private final String namespace;
+
+	private final String labelSelector;
+
+	private final ProtobufLister<?, ApiListType> protobuf;
+
+	LabelSelectingListerWatcher(GenericKubernetesApi<ApiType, ApiListType> api, String namespace,
+			String labelSelector) {
+		this(api, namespace, labelSelector, null);
+	}
+
+	LabelSelectingListerWatcher(GenericKubernetesApi<ApiType, ApiListType> api, String namespace,
+			String labelSelector, ProtobufLister<?, ApiListType> protobuf) {
+		this.api = api;
+		this.namespace = namespace;
+		this.labelSelector = labelSelector;
+		this.protobuf = protobuf;
+	}
+
+	@Override
+	public ApiListType list(CallGeneratorParams params) throws ApiException {
+		if (this.protobuf != null) {
+			return this.protobuf.list(this.namespace, this.labelSelector, params.resourceVersion);
+		}
+		var response = this.namespace == null ? this.api.list(listOptions(params))
+				: this.api.list(this.namespace, listOptions(params));
+		return response.throwsApiException().getObject();
+	}
+
+	@Override
+	public Watchable<ApiType> watch(CallGeneratorParams params) throws ApiException {
+		return this.namespace == null ? this.api.watch(listOptions(params))
+				: this.api.watch(this.namespace, listOptions(params));
+	}
+
+	private ListOptions listOptions(CallGeneratorParams params) {
+		var options = new ListOptions();
+		options.setLabelSelector(this.labelSelector);
+		options.setResourceVersion(params.resourceVersion);
+		options.setTimeoutSeconds(params.timeoutSeconds);
+		return options;
+	}
+
+}
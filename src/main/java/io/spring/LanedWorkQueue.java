@@ -0,0 +1,350 @@
+package io.spring;
+
+import io.kubernetes.client.extended.workqueue.DelayingQueue;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * a work queue with priority lanes, in place of {@code DefaultDelayingQueue}'s single
+ * FIFO, so that a resync burst doesn't hold up changes people just made. workers always
+ * take from the most urgent lane that has anything waiting, and within a lane the tenants
+ * (for us, namespaces) take turns, so that one with 10k Foos can't starve one with 10.
+ * <p>
+ * like any work queue, an item is only ever waiting once: adding it again coalesces, and
+ * moves it up to the more urgent of the two lanes. an item that is added while a worker
+ * has it is handed out again once that worker is done with it, never to two workers at
+ * once. a delayed item keeps only its earliest deadline.
+ * <p>
+ * {@link #add} goes to the {@link Lane#CHANGE} lane, {@link #lane} to any other.
+ */
+class LanedWorkQueue<T> implements DelayingQueue<T> {
+
+	/**
+	 * most urgent first.
+	 */
+	enum Lane {
+
+		/** a Foo was created or changed, or is being retried */
+		CHANGE,
+		/** something a Foo owns drifted, or the Foo just became ours */
+		DRIFT,
+		/** a periodic resync */
+		RESYNC
+
+	}
+
+	private final Function<T, String> tenantOf;
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		var thread = new Thread(runnable, "foo-workqueue-delays");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = this.lock.newCondition();
+
+	/**
+	 * the lane of every item that is waiting.
+	 */
+	private final Map<T, Lane> waiting = new HashMap<>();
+
+	private final Map<Lane, Line> lines = new EnumMap<>(Lane.class);
+
+	private final Set<T> processing = new HashSet<>();
+
+	/**
+	 * items added again while a worker had them, and the lane they go back into.
+	 */
+	private final Map<T, Lane> dirty = new HashMap<>();
+
+	private final Map<T, Long> deadlines = new HashMap<>();
+
+	private boolean shuttingDown;
+
+	LanedWorkQueue(Function<T, String> tenantOf) {
+		this.tenantOf = tenantOf;
+		for (var lane : Lane.values()) {
+			this.lines.put(lane, new Line(lane));
+		}
+	}
+
+	/**
+	 * this same queue, except that everything added through it goes into {@code lane}.
+	 */
+	DelayingQueue<T> lane(Lane lane) {
+		return new DelayingQueue<>() {
+
+			@Override
+			public void add(T item) {
+				LanedWorkQueue.this.add(item, lane);
+			}
+
+			@Override
+			public void addAfter(T item, Duration duration) {
+				LanedWorkQueue.this.addAfter(item, duration, lane);
+			}
+
+			@Override
+			public int length() {
+				return LanedWorkQueue.this.length();
+			}
+
+			@Override
+			public T get() throws InterruptedException {
+				return LanedWorkQueue.this.get();
+			}
+
+			@Override
+			public void done(T item) {
+				LanedWorkQueue.this.done(item);
+			}
+
+			@Override
+			public void shutDown() {
+				LanedWorkQueue.this.shutDown();
+			}
+
+			@Override
+			public boolean isShuttingDown() {
+				return LanedWorkQueue.this.isShuttingDown();
+			}
+
+		};
+	}
+
+	@Override
+	public void add(T item) {
+		add(item, Lane.CHANGE);
+	}
+
+	@Override
+	public void addAfter(T item, Duration duration) {
+		addAfter(item, duration, Lane.CHANGE);
+	}
+
+	private void add(T item, Lane lane) {
+		this.lock.lock();
+		try {
+			if (this.shuttingDown) {
+				return;
+			}
+			if (this.processing.contains(item)) {
+				this.dirty.merge(item, lane, LanedWorkQueue::moreUrgent);
+				return;
+			}
+			enqueue(item, lane);
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void addAfter(T item, Duration duration, Lane lane) {
+		if (duration.isNegative() || duration.isZero()) {
+			add(item, lane);
+			return;
+		}
+		var deadline = System.nanoTime() + duration.toNanos();
+		this.lock.lock();
+		try {
+			if (this.shuttingDown) {
+				return;
+			}
+			var earlier = this.deadlines.get(item);
+			if (earlier != null && earlier - deadline <= 0) {
+				return;
+			}
+			this.deadlines.put(item, deadline);
+		}
+		finally {
+			this.lock.unlock();
+		}
+		this.scheduler.schedule(() -> {
+			this.lock.lock();
+			try {
+				// unless an earlier deadline took its place
+				if (!this.deadlines.remove(item, deadline)) {
+					return;
+				}
+			}
+			finally {
+				this.lock.unlock();
+			}
+			add(item, lane);
+		}, duration.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	// under the lock
+	private void enqueue(T item, Lane lane) {
+		var current = this.waiting.get(item);
+		if (current != null && current.compareTo(lane) <= 0) {
+			return;
+		}
+		// a copy in a less urgent lane is left behind, and skipped once its turn comes
+		this.waiting.put(item, lane);
+		this.lines.get(lane).offer(item);
+		this.notEmpty.signal();
+	}
+
+	@Override
+	public T get() throws InterruptedException {
+		this.lock.lock();
+		try {
+			while (this.waiting.isEmpty() && !this.shuttingDown) {
+				this.notEmpty.await();
+			}
+			for (var lane : Lane.values()) {
+				var item = this.lines.get(lane).poll();
+				if (item != null) {
+					this.waiting.remove(item);
+					this.processing.add(item);
+					return item;
+				}
+			}
+			return null;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public void done(T item) {
+		this.lock.lock();
+		try {
+			this.processing.remove(item);
+			var lane = this.dirty.remove(item);
+			if (lane != null) {
+				enqueue(item, lane);
+			}
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public int length() {
+		this.lock.lock();
+		try {
+			return this.waiting.size();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * how many items are waiting in the lane.
+	 */
+	int length(Lane lane) {
+		this.lock.lock();
+		try {
+			return (int) this.waiting.values().stream().filter(lane::equals).count();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public void shutDown() {
+		this.lock.lock();
+		try {
+			this.shuttingDown = true;
+			this.notEmpty.signalAll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+		this.scheduler.shutdownNow();
+	}
+
+	@Override
+	public boolean isShuttingDown() {
+		this.lock.lock();
+		try {
+			return this.shuttingDown;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private static Lane moreUrgent(Lane a, Lane b) {
+		return a.compareTo(b) <= 0 ? a : b;
+	}
+
+	/**
+	 * one lane: a FIFO per tenant, and the tenants in the order they get their next turn.
+	 * all under the lock.
+	 */
+	private final class Line {
+
+		private final Lane lane;
+
+		private final Map<String, ArrayDeque<T>> byTenant = new HashMap<>();
+
+		private final ArrayDeque<String> turns = new ArrayDeque<>();
+
+		Line(Lane lane) {
+			this.lane = lane;
+		}
+
+		void offer(T item) {
+			var tenant = Objects.toString(tenantOf.apply(item), "");
+			var items = this.byTenant.get(tenant);
+			if (items == null) {
+				items = new ArrayDeque<>();
+				this.byTenant.put(tenant, items);
+				this.turns.addLast(tenant);
+			}
+			items.addLast(item);
+		}
+
+		/**
+		 * the next item of the next tenant, skipping copies of items that have since been
+		 * handed out, or moved to a more urgent lane.
+		 */
+		T poll() {
+			while (!this.turns.isEmpty()) {
+				var tenant = this.turns.pollFirst();
+				var items = this.byTenant.get(tenant);
+				T item = null;
+				while (item == null && !items.isEmpty()) {
+					var next = items.pollFirst();
+					if (waiting.get(next) == this.lane) {
+						item = next;
+					}
+				}
+				if (items.isEmpty()) {
+					this.byTenant.remove(tenant);
+				}
+				else {
+					this.turns.addLast(tenant);
+				}
+				if (item != null) {
+					return item;
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
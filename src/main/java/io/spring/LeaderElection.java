@@ -0,0 +1,133 @@
+package io.spring;
+
+import io.kubernetes.client.extended.leaderelection.LeaderElectionConfig;
+import io.kubernetes.client.extended.leaderelection.LeaderElector;
+import io.kubernetes.client.extended.leaderelection.resourcelock.LeaseLock;
+import io.kubernetes.client.openapi.ApiClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * decides which replica gets to run the controller, by holding a {@code Lease}. every
+ * replica starts its informers regardless, so a standby's caches are as warm as the
+ * leader's and taking over costs one lease acquisition rather than a full relist. with
+ * leader election turned off, every replica simply leads.
+ * <p>
+ * {@code foo.leader} is 1 while we hold the lease, {@code foo.leader.transitions} counts
+ * how often we started and stopped leading, and {@code foo.leader.changes} counts every
+ * leader we've seen take over, including the other replicas.
+ */
+@Slf4j
+class LeaderElection {
+
+	private final FooControllerProperties.LeaderElection properties;
+
+	private final ApiClient apiClient;
+
+	private final String identity;
+
+	private final AtomicBoolean leading = new AtomicBoolean();
+
+	private final Counter started;
+
+	private final Counter stopped;
+
+	private final Counter changes;
+
+	LeaderElection(FooControllerProperties.LeaderElection properties, ApiClient apiClient,
+			MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.apiClient = apiClient;
+		this.identity = StringUtils.hasText(properties.getIdentity()) ? properties.getIdentity() : defaultIdentity();
+		Gauge.builder("foo.leader", this.leading, l -> l.get() ? 1 : 0) //
+				.description("whether this replica holds the leader lease") //
+				.register(meterRegistry);
+		this.started = transitions("started", meterRegistry);
+		this.stopped = transitions("stopped", meterRegistry);
+		this.changes = Counter.builder("foo.leader.changes") //
+				.description("new leaders observed, this replica or any other") //
+				.register(meterRegistry);
+	}
+
+	/**
+	 * blocks until we've become the leader and run {@code lead}, then for as long as we keep
+	 * renewing the lease. {@code stepDown} runs once it's lost.
+	 */
+	void run(Runnable lead, Runnable stepDown) {
+		if (!this.properties.isEnabled()) {
+			leading(true);
+			lead.run();
+			return;
+		}
+		var lock = new LeaseLock(this.properties.getLeaseNamespace(), this.properties.getLeaseName(), this.identity,
+				this.apiClient);
+		var config = new LeaderElectionConfig(lock, this.properties.getLeaseDuration(),
+				this.properties.getRenewDeadline(), this.properties.getRetryPeriod());
+		log.info(this.identity + " is waiting for the lease " + this.properties.getLeaseNamespace() + '/'
+				+ this.properties.getLeaseName());
+		new LeaderElector(config).run(() -> {
+			leading(true);
+			lead.run();
+		}, () -> {
+			leading(false);
+			stepDown.run();
+		}, leader -> {
+			this.changes.increment();
+			log.info("the leader is now " + leader);
+		});
+	}
+
+	boolean isLeader() {
+		return this.leading.get();
+	}
+
+	private void leading(boolean leading) {
+		if (this.leading.compareAndSet(!leading, leading)) {
+			(leading ? this.started : this.stopped).increment();
+			log.info(this.identity + (leading ? " started" : " stopped") + " leading");
+		}
+	}
+
+	private static Counter transitions(String transition, MeterRegistry meterRegistry) {
+		return Counter.builder("foo.leader.transitions") //
+				.description("how often this replica started or stopped leading") //
+				.tag("transition", transition) //
+				.register(meterRegistry);
+	}
+
+	/**
+	 * in a pod, the pod name: unique among the replicas, and the same across container
+	 * restarts, so that a restarted replica picks up where it left off rather than leaving
+	 * a lease behind. anywhere else the host name, plus a random suffix that keeps two
+	 * replicas on one machine apart.
+	 */
+	static String defaultIdentity() {
+		return defaultIdentity(System.getenv());
+	}
+
+	static String defaultIdentity(Map<String, String> environment) {
+		if (environment.containsKey("KUBERNETES_SERVICE_HOST")) {
+			// POD_NAME if the downward API provides it, otherwise the host name is the pod name
+			var podName = environment.getOrDefault("POD_NAME", environment.get("HOSTNAME"));
+			if (StringUtils.hasText(podName)) {
+				return podName;
+			}
+		}
+		try {
+			return InetAddress.getLocalHost().getHostName() + '-' + UUID.randomUUID().toString().substring(0, 8);
+		}
+		catch (UnknownHostException e) {
+			return UUID.randomUUID().toString();
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package io.spring;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * serves the Prometheus scrape and the health check on the JDK's own HTTP server. those
+ * two GETs are all we ever answer, which doesn't justify Tomcat and Spring MVC. the paths
+ * are the ones actuator used, so existing scrape configs and probes keep working.
+ */
+@Slf4j
+class MetricsServer implements AutoCloseable {
+
+	static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
+	static final String HEALTH_PATH = "/actuator/health";
+
+	// what the Prometheus text exposition format is served as
+	private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final PrometheusMeterRegistry meterRegistry;
+
+	/**
+	 * actuator's health endpoint, or {@code null} to always report {@code UP}.
+	 */
+	private final HealthEndpoint health;
+
+	private final HttpServer server;
+
+	MetricsServer(FooControllerProperties.Metrics properties, PrometheusMeterRegistry meterRegistry,
+			HealthEndpoint health) throws IOException {
+		this.meterRegistry = meterRegistry;
+		this.health = health;
+		if (properties.getPort() < 0) {
+			this.server = null;
+			return;
+		}
+		this.server = HttpServer.create(new InetSocketAddress(properties.getPort()), 0);
+		this.server.createContext(PROMETHEUS_PATH, exchange -> respond(exchange, HttpURLConnection.HTTP_OK,
+				PROMETHEUS_CONTENT_TYPE, this.meterRegistry.scrape()));
+		this.server.createContext(HEALTH_PATH, this::health);
+		this.server.start();
+		log.info("serving metrics on port " + port());
+	}
+
+	/**
+	 * the port we listen on, or -1 if we don't.
+	 */
+	int port() {
+		return this.server != null ? this.server.getAddress().getPort() : -1;
+	}
+
+	@Override
+	public void close() {
+		if (this.server != null) {
+			this.server.stop(0);
+		}
+	}
+
+	private void health(HttpExchange exchange) throws IOException {
+		var status = this.health != null ? this.health.health().getStatus() : Status.UP;
+		var code = Status.UP.equals(status) ? HttpURLConnection.HTTP_OK : HttpURLConnection.HTTP_UNAVAILABLE;
+		respond(exchange, code, "application/json", "{\"status\":\"" + status.getCode() + "\"}");
+	}
+
+	private static void respond(HttpExchange exchange, int code, String contentType, String body)
+			throws IOException {
+		try (exchange) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+				return;
+			}
+			var bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			exchange.sendResponseHeaders(code, bytes.length);
+			exchange.getResponseBody().write(bytes);
+		}
+	}
+
+}
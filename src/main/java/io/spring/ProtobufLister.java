@@ -0,0 +1,243 @@
+package io.spring;
+
+import com.google.protobuf.Message;
+import io.kubernetes.client.ProtoClient;
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1OwnerReference;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.V1;
+import io.kubernetes.client.proto.V1Coordination;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * lists a built-in resource in the API server's protobuf encoding
+ * ({@code application/vnd.kubernetes.protobuf}) rather than JSON, and hands back the
+ * same models the JSON path would. for a list of {@code ConfigMap}s that is a fraction of
+ * the bytes, and decoding it skips the JSON parse altogether.
+ * <p>
+ * only reads, and only of {@code ConfigMap}s and {@code Lease}s: those are small, fixed
+ * schemas, so converting the messages to models by hand is cheap and easy to get right.
+ * watches stay JSON (the client's {@code Watch} only speaks JSON), so do all writes, and
+ * so does everything about {@code Deployment}s, whose pod template is most of the
+ * {@code apps/v1} schema. the Foo CRD has no protobuf encoding at all.
+ * <p>
+ * {@code managedFields} are not converted: the caches drop them anyway, see
+ * {@link CacheTransforms}.
+ */
+class ProtobufLister<ProtoListType extends Message, ApiListType extends KubernetesListObject> {
+
+	private final ApiClient apiClient;
+
+	private final ProtoClient protoClient;
+
+	private final String groupVersionPath;
+
+	private final String plural;
+
+	private final Supplier<Message.Builder> newBuilder;
+
+	private final Function<ProtoListType, ApiListType> convert;
+
+	ProtobufLister(ApiClient apiClient, String groupVersionPath, String plural, Supplier<Message.Builder> newBuilder,
+			Function<ProtoListType, ApiListType> convert) {
+		this.apiClient = apiClient;
+		this.protoClient = new ProtoClient(apiClient);
+		this.groupVersionPath = groupVersionPath;
+		this.plural = plural;
+		this.newBuilder = newBuilder;
+		this.convert = convert;
+	}
+
+	static ProtobufLister<V1.ConfigMapList, V1ConfigMapList> configMaps(ApiClient apiClient) {
+		return new ProtobufLister<>(apiClient, "/api/v1", "configmaps", V1.ConfigMapList::newBuilder,
+				ProtobufLister::configMapList);
+	}
+
+	static ProtobufLister<V1Coordination.LeaseList, V1LeaseList> leases(ApiClient apiClient) {
+		return new ProtobufLister<>(apiClient, "/apis/coordination.k8s.io/v1", "leases",
+				V1Coordination.LeaseList::newBuilder, ProtobufLister::leaseList);
+	}
+
+	/**
+	 * the objects carrying {@code labelSelector}, in one namespace or (with a {@code null}
+	 * namespace) across all of them.
+	 */
+	ApiListType list(String namespace, String labelSelector, String resourceVersion) throws ApiException {
+		var path = new StringBuilder(this.groupVersionPath);
+		if (namespace != null) {
+			path.append("/namespaces/").append(this.apiClient.escapeString(namespace));
+		}
+		path.append('/').append(this.plural);
+		var separator = '?';
+		if (labelSelector != null) {
+			path.append(separator).append("labelSelector=").append(this.apiClient.escapeString(labelSelector));
+			separator = '&';
+		}
+		if (resourceVersion != null) {
+			path.append(separator).append("resourceVersion=").append(this.apiClient.escapeString(resourceVersion));
+		}
+		ProtoClient.ObjectOrStatus<ProtoListType> response;
+		try {
+			response = this.protoClient.list(this.newBuilder.get(), path.toString());
+		}
+		catch (IOException e) {
+			throw new ApiException(e);
+		}
+		if (response.object == null) {
+			var status = response.status;
+			throw status == null ? new ApiException("no list in the response to " + path)
+					: new ApiException(status.getCode(), status.getMessage());
+		}
+		return this.convert.apply(response.object);
+	}
+
+	static V1ConfigMapList configMapList(V1.ConfigMapList list) {
+		var items = new ArrayList<V1ConfigMap>(list.getItemsCount());
+		for (var item : list.getItemsList()) {
+			items.add(configMap(item));
+		}
+		return new V1ConfigMapList().apiVersion("v1").kind("ConfigMapList").metadata(listMeta(list.getMetadata()))
+				.items(items);
+	}
+
+	static V1ConfigMap configMap(V1.ConfigMap configMap) {
+		var model = new V1ConfigMap().metadata(objectMeta(configMap.getMetadata()));
+		if (configMap.getDataCount() > 0) {
+			model.setData(new LinkedHashMap<>(configMap.getDataMap()));
+		}
+		if (configMap.getBinaryDataCount() > 0) {
+			var binaryData = new LinkedHashMap<String, byte[]>();
+			configMap.getBinaryDataMap().forEach((key, value) -> binaryData.put(key, value.toByteArray()));
+			model.setBinaryData(binaryData);
+		}
+		if (configMap.hasImmutable()) {
+			model.setImmutable(configMap.getImmutable());
+		}
+		return model;
+	}
+
+	static V1LeaseList leaseList(V1Coordination.LeaseList list) {
+		var items = new ArrayList<V1Lease>(list.getItemsCount());
+		for (var item : list.getItemsList()) {
+			items.add(lease(item));
+		}
+		return new V1LeaseList().apiVersion("coordination.k8s.io/v1").kind("LeaseList")
+				.metadata(listMeta(list.getMetadata())).items(items);
+	}
+
+	static V1Lease lease(V1Coordination.Lease lease) {
+		var model = new V1Lease().metadata(objectMeta(lease.getMetadata()));
+		if (!lease.hasSpec()) {
+			return model;
+		}
+		var spec = lease.getSpec();
+		var modelSpec = new V1LeaseSpec();
+		if (spec.hasHolderIdentity()) {
+			modelSpec.setHolderIdentity(spec.getHolderIdentity());
+		}
+		if (spec.hasLeaseDurationSeconds()) {
+			modelSpec.setLeaseDurationSeconds(spec.getLeaseDurationSeconds());
+		}
+		if (spec.hasAcquireTime()) {
+			modelSpec.setAcquireTime(time(spec.getAcquireTime().getSeconds(), spec.getAcquireTime().getNanos()));
+		}
+		if (spec.hasRenewTime()) {
+			modelSpec.setRenewTime(time(spec.getRenewTime().getSeconds(), spec.getRenewTime().getNanos()));
+		}
+		if (spec.hasLeaseTransitions()) {
+			modelSpec.setLeaseTransitions(spec.getLeaseTransitions());
+		}
+		return model.spec(modelSpec);
+	}
+
+	private static V1ListMeta listMeta(Meta.ListMeta listMeta) {
+		var model = new V1ListMeta();
+		if (listMeta.hasResourceVersion()) {
+			model.setResourceVersion(listMeta.getResourceVersion());
+		}
+		if (listMeta.hasContinue()) {
+			model.setContinue(listMeta.getContinue());
+		}
+		if (listMeta.hasRemainingItemCount()) {
+			model.setRemainingItemCount(listMeta.getRemainingItemCount());
+		}
+		return model;
+	}
+
+	private static V1ObjectMeta objectMeta(Meta.ObjectMeta metadata) {
+		var model = new V1ObjectMeta();
+		if (metadata.hasName()) {
+			model.setName(metadata.getName());
+		}
+		if (metadata.hasGenerateName()) {
+			model.setGenerateName(metadata.getGenerateName());
+		}
+		if (metadata.hasNamespace()) {
+			model.setNamespace(metadata.getNamespace());
+		}
+		if (metadata.hasUid()) {
+			model.setUid(metadata.getUid());
+		}
+		if (metadata.hasResourceVersion()) {
+			model.setResourceVersion(metadata.getResourceVersion());
+		}
+		if (metadata.hasGeneration()) {
+			model.setGeneration(metadata.getGeneration());
+		}
+		if (metadata.hasCreationTimestamp()) {
+			model.setCreationTimestamp(
+					time(metadata.getCreationTimestamp().getSeconds(), metadata.getCreationTimestamp().getNanos()));
+		}
+		if (metadata.hasDeletionTimestamp()) {
+			model.setDeletionTimestamp(
+					time(metadata.getDeletionTimestamp().getSeconds(), metadata.getDeletionTimestamp().getNanos()));
+		}
+		if (metadata.hasDeletionGracePeriodSeconds()) {
+			model.setDeletionGracePeriodSeconds(metadata.getDeletionGracePeriodSeconds());
+		}
+		if (metadata.getLabelsCount() > 0) {
+			model.setLabels(new LinkedHashMap<>(metadata.getLabelsMap()));
+		}
+		if (metadata.getAnnotationsCount() > 0) {
+			model.setAnnotations(new LinkedHashMap<>(metadata.getAnnotationsMap()));
+		}
+		for (var ownerReference : metadata.getOwnerReferencesList()) {
+			var modelOwnerReference = new V1OwnerReference().apiVersion(ownerReference.getApiVersion())
+					.kind(ownerReference.getKind()).name(ownerReference.getName()).uid(ownerReference.getUid());
+			if (ownerReference.hasController()) {
+				modelOwnerReference.setController(ownerReference.getController());
+			}
+			if (ownerReference.hasBlockOwnerDeletion()) {
+				modelOwnerReference.setBlockOwnerDeletion(ownerReference.getBlockOwnerDeletion());
+			}
+			model.addOwnerReferencesItem(modelOwnerReference);
+		}
+		if (metadata.getFinalizersCount() > 0) {
+			model.setFinalizers(new ArrayList<>(metadata.getFinalizersList()));
+		}
+		return model;
+	}
+
+	// Time has whole seconds, MicroTime microseconds: both come as seconds and nanos
+	private static OffsetDateTime time(long seconds, int nanos) {
+		return OffsetDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), ZoneOffset.UTC);
+	}
+
+}
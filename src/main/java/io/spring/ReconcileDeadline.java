@@ -0,0 +1,91 @@
+package io.spring;
+
+import okhttp3.Call;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * how long the reconcile running on this thread has left, and which API calls it has in
+ * flight, so that they can be cancelled once it runs out. {@link DeadlineReconciler} sets
+ * the deadline and runs it out, {@link TimeoutInterceptor} registers the calls.
+ */
+final class ReconcileDeadline {
+
+	private static final ThreadLocal<ReconcileDeadline> CURRENT = new ThreadLocal<>();
+
+	private final long deadline;
+
+	private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean expired;
+
+	ReconcileDeadline(Duration timeout) {
+		this.deadline = System.nanoTime() + timeout.toNanos();
+	}
+
+	/**
+	 * the deadline of the reconcile running on this thread, if any.
+	 */
+	static ReconcileDeadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * runs tasks with whatever deadline was current on the thread that submitted them, so
+	 * that work a reconcile hands off is held to its deadline too.
+	 */
+	static Executor propagating(Executor executor) {
+		return command -> {
+			var deadline = current();
+			executor.execute(deadline == null ? command : () -> deadline.call(() -> {
+				command.run();
+				return null;
+			}));
+		};
+	}
+
+	<T> T call(Supplier<T> work) {
+		var previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return work.get();
+		}
+		finally {
+			if (previous == null) {
+				CURRENT.remove();
+			}
+			else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	long remainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.deadline - System.nanoTime());
+	}
+
+	boolean isExpired() {
+		return this.expired;
+	}
+
+	/**
+	 * cancels the call once the deadline passes, or right away if it already has.
+	 */
+	void register(Call call) {
+		this.calls.add(call);
+		if (this.expired) {
+			call.cancel();
+		}
+	}
+
+	void expire() {
+		this.expired = true;
+		this.calls.forEach(Call::cancel);
+	}
+
+}
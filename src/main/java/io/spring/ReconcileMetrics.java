@@ -0,0 +1,78 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.ApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reconcile timings: {@code foo.reconcile} for the whole thing, tagged by how it ended,
+ * and {@code foo.reconcile.phase} for the parts of it that do real work.
+ */
+class ReconcileMetrics {
+
+	enum Outcome {
+
+		/** the Foo is gone, nothing to do */
+		DELETED,
+		/** already reconciled, short-circuited */
+		SKIPPED,
+		/** rendered, and written wherever something had drifted */
+		RECONCILED,
+		/** failed, and will be retried */
+		REQUEUED,
+		/** failed, and won't be */
+		FAILED
+
+	}
+
+	enum Phase {
+
+		RENDER, CONFIGMAP, DEPLOYMENT, STATUS
+
+	}
+
+	private final Map<Outcome, Timer> outcomes = new EnumMap<>(Outcome.class);
+
+	private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+
+	ReconcileMetrics(MeterRegistry meterRegistry) {
+		for (var outcome : Outcome.values()) {
+			this.outcomes.put(outcome, Timer.builder("foo.reconcile") //
+					.description("time taken to reconcile a Foo") //
+					.tag("outcome", tagValue(outcome)) //
+					.publishPercentileHistogram() //
+					.register(meterRegistry));
+		}
+		for (var phase : Phase.values()) {
+			this.phases.put(phase, Timer.builder("foo.reconcile.phase") //
+					.description("time taken by one phase of a reconcile") //
+					.tag("phase", tagValue(phase)) //
+					.publishPercentileHistogram() //
+					.register(meterRegistry));
+		}
+	}
+
+	void record(Outcome outcome, long nanos) {
+		this.outcomes.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	<T> T time(Phase phase, FooReconciler.ApiSupplier<T> work) throws ApiException {
+		long start = System.nanoTime();
+		try {
+			return work.get();
+		}
+		finally {
+			this.phases.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static String tagValue(Enum<?> value) {
+		return value.name().toLowerCase(Locale.ROOT);
+	}
+
+}
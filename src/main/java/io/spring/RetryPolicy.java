@@ -0,0 +1,95 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.openapi.ApiException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * decides what happens to a request after a failed reconcile.
+ * <ul>
+ * <li>409 conflict: our cache was behind. retry right away (well, after the first few
+ * milliseconds of the per-key backoff).</li>
+ * <li>429 and 5xx: the API server is struggling. back off, and if it told us for how long
+ * with {@code Retry-After}, listen.</li>
+ * <li>any other 4xx: the request itself is bad (validation, forbidden, ...). retrying
+ * won't fix it, so don't. the next change to the Foo will bring it back.</li>
+ * <li>anything else (timeouts, connection resets, bugs): back off.</li>
+ * </ul>
+ * "back off" means {@code new Result(true)}, which the controller turns into
+ * {@code addRateLimited}, so the work queue's per-key backoff and global token bucket
+ * decide when we see the request again.
+ */
+@Slf4j
+final class RetryPolicy {
+
+	private RetryPolicy() {
+	}
+
+	static Result forFailure(String key, Throwable throwable) {
+		if (!(throwable instanceof ApiException apiException)) {
+			log.error("we've got an outer error reconciling " + key + ".", throwable);
+			return new Result(true);
+		}
+		int code = apiException.getCode();
+		if (code == 409) {
+			log.info("conflict reconciling " + key + ". Retrying.");
+			return new Result(true);
+		}
+		if (code == 429 || code >= 500) {
+			var retryAfter = retryAfter(apiException.getResponseHeaders());
+			log.warn("got code " + code + " reconciling " + key + ". Backing off"
+					+ retryAfter.map(delay -> " for " + delay).orElse("") + ".");
+			return retryAfter.map(RetryPolicy::withJitter).map(delay -> new Result(true, delay))
+					.orElseGet(() -> new Result(true));
+		}
+		if (code >= 400) {
+			log.error("got code " + code + " reconciling " + key + ". Not retrying: " + apiException.getResponseBody());
+			return new Result(false);
+		}
+		// code 0: we never got a response
+		log.warn("could not reach the API server reconciling " + key + ". Backing off.", apiException);
+		return new Result(true);
+	}
+
+	static Optional<Duration> retryAfter(Map<String, List<String>> headers) {
+		if (headers == null) {
+			return Optional.empty();
+		}
+		return headers.entrySet().stream() //
+				.filter(header -> "Retry-After".equalsIgnoreCase(header.getKey())) //
+				.flatMap(header -> header.getValue().stream()) //
+				.findFirst() //
+				.flatMap(RetryPolicy::parseRetryAfter);
+	}
+
+	private static Optional<Duration> parseRetryAfter(String value) {
+		try {
+			return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+		}
+		catch (NumberFormatException e) {
+			try {
+				var at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				var delay = Duration.between(ZonedDateTime.now(at.getZone()), at);
+				return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+			}
+			catch (DateTimeParseException ignored) {
+				return Optional.empty();
+			}
+		}
+	}
+
+	// everyone who got the same Retry-After shouldn't come back in the same millisecond
+	private static Duration withJitter(Duration delay) {
+		return delay.plusMillis(ThreadLocalRandom.current().nextLong(Math.max(1, delay.toMillis() / 10 + 1)));
+	}
+
+}
@@ -0,0 +1,57 @@
+package io.spring;
+
+import com.google.gson.JsonElement;
+
+import java.util.Map;
+
+/**
+ * compares what we want against what the API server has. the server fills in defaults
+ * ({@code strategy}, {@code imagePullPolicy}, {@code protocol}, ...) and bookkeeping
+ * ({@code uid}, {@code managedFields}, {@code status}, ...) that we never set, so a plain
+ * {@code equals} would always say the objects differ. instead an object is considered up
+ * to date if every field we set has the same value on the server.
+ */
+final class SemanticDiff {
+
+	private SemanticDiff() {
+	}
+
+	static boolean matches(JsonElement desired, JsonElement actual) {
+		if (desired == null || desired.isJsonNull()) {
+			return true;
+		}
+		if (actual == null || actual.isJsonNull()) {
+			return false;
+		}
+		if (desired.isJsonObject()) {
+			if (!actual.isJsonObject()) {
+				return false;
+			}
+			var actualObject = actual.getAsJsonObject();
+			for (Map.Entry<String, JsonElement> entry : desired.getAsJsonObject().entrySet()) {
+				if (!matches(entry.getValue(), actualObject.get(entry.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (desired.isJsonArray()) {
+			if (!actual.isJsonArray()) {
+				return false;
+			}
+			var desiredArray = desired.getAsJsonArray();
+			var actualArray = actual.getAsJsonArray();
+			if (desiredArray.size() != actualArray.size()) {
+				return false;
+			}
+			for (var i = 0; i < desiredArray.size(); i++) {
+				if (!matches(desiredArray.get(i), actualArray.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return desired.equals(actual);
+	}
+
+}
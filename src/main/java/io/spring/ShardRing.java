@@ -0,0 +1,62 @@
+package io.spring;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * a consistent-hash ring: every member is placed on it {@code virtualNodes} times, and a
+ * key belongs to the first member at or after the key's own position. with enough virtual
+ * nodes the keys split evenly, and when a member joins or leaves only the keys it takes
+ * (or gives up) change hands, about {@code 1/members} of them.
+ */
+final class ShardRing {
+
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+	private final Set<String> members;
+
+	ShardRing(Collection<String> members, int virtualNodes) {
+		this.members = new TreeSet<>(members);
+		for (var member : this.members) {
+			for (var i = 0; i < virtualNodes; i++) {
+				this.ring.put(hash(member + '#' + i), member);
+			}
+		}
+	}
+
+	Set<String> members() {
+		return this.members;
+	}
+
+	/**
+	 * who owns the key, or {@code null} if there is nobody on the ring.
+	 */
+	String ownerOf(String key) {
+		if (this.ring.isEmpty()) {
+			return null;
+		}
+		Map.Entry<Long, String> entry = this.ring.ceilingEntry(hash(key));
+		return (entry != null ? entry : this.ring.firstEntry()).getValue();
+	}
+
+	// 64-bit FNV-1a, then a murmur3 finalizer so that similar keys land far apart
+	private static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+
+}
@@ -0,0 +1,237 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.extended.controller.reconciler.Reconciler;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.kubernetes.client.util.generic.options.ListOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.net.HttpURLConnection;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * splits the Foos between however many replicas are running, so that each of them only
+ * reconciles its own share. every replica keeps a {@code Lease} of its own up to date, and
+ * whoever holds an unexpired one is a member of the {@link ShardRing}. a Foo belongs to
+ * whichever member its {@code namespace/name} hashes to.
+ * <p>
+ * membership is refreshed every {@code renew-period}. when it changes, the rebalance
+ * listeners run, so that keys we just took over get enqueued from the (warm) informer
+ * cache. around a change, two replicas may briefly both think they own a key: every write
+ * we make is idempotent or guarded by a {@code resourceVersion}, so the worst that
+ * happens is a 409 and a retry. a replica that shuts down cleanly deletes its lease, so
+ * the others pick up its keys right away rather than after the lease expires. one that
+ * crashes, or whose pod is replaced, leaves its lease behind, and whoever next finds it
+ * expired for longer than {@code delete-expired-after} deletes it.
+ * <p>
+ * with sharding turned off, every key is ours.
+ */
+@Slf4j
+class Sharding implements AutoCloseable {
+
+	/**
+	 * the label on every member's lease.
+	 */
+	static final String MEMBER_LABEL = "foo-controller.spring.io/shard-member";
+
+	private final FooControllerProperties.Sharding properties;
+
+	private final GenericKubernetesApi<V1Lease, V1LeaseList> leases;
+
+	/**
+	 * lists the members' leases in protobuf, or {@code null} to list them in JSON.
+	 */
+	private final ProtobufLister<?, V1LeaseList> memberLeases;
+
+	private final String identity;
+
+	private final String leaseName;
+
+	private final List<Runnable> rebalanceListeners = new CopyOnWriteArrayList<>();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+	private final Counter rebalances;
+
+	private volatile ShardRing ring;
+
+	Sharding(FooControllerProperties.Sharding properties, GenericKubernetesApi<V1Lease, V1LeaseList> leases,
+			MeterRegistry meterRegistry) {
+		this(properties, leases, null, meterRegistry);
+	}
+
+	Sharding(FooControllerProperties.Sharding properties, GenericKubernetesApi<V1Lease, V1LeaseList> leases,
+			ProtobufLister<?, V1LeaseList> memberLeases, MeterRegistry meterRegistry) {
+		this.properties = properties;
+		this.leases = leases;
+		this.memberLeases = memberLeases;
+		this.identity = StringUtils.hasText(properties.getIdentity()) ? properties.getIdentity()
+				: LeaderElection.defaultIdentity();
+		this.leaseName = properties.getLeasePrefix()
+				+ this.identity.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9.-]", "-");
+		this.ring = new ShardRing(List.of(this.identity), properties.getVirtualNodes());
+		Gauge.builder("foo.shard.members", this, s -> s.ring.members().size()) //
+				.description("how many replicas share the Foos") //
+				.register(meterRegistry);
+		this.rebalances = Counter.builder("foo.shard.rebalances") //
+				.description("how often the shard membership changed") //
+				.register(meterRegistry);
+	}
+
+	/**
+	 * joins the ring, and learns who else is on it before returning, so that the informers
+	 * can start with the right keys.
+	 */
+	void start() {
+		if (!this.properties.isEnabled()) {
+			return;
+		}
+		log.info(this.identity + " is joining the shards in " + this.properties.getLeaseNamespace());
+		heartbeatAndRefresh();
+		var period = this.properties.getRenewPeriod().toMillis();
+		this.executor.scheduleWithFixedDelay(this::heartbeatAndRefresh, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	void onRebalance(Runnable listener) {
+		this.rebalanceListeners.add(listener);
+	}
+
+	boolean owns(Request request) {
+		return !this.properties.isEnabled()
+				|| this.identity.equals(this.ring.ownerOf(request.getNamespace() + '/' + request.getName()));
+	}
+
+	/**
+	 * the request for the object, or {@code null} if it belongs to some other replica.
+	 */
+	Request requestFor(KubernetesObject object) {
+		var request = StaggeredResyncWatch.requestFor(object);
+		return owns(request) ? request : null;
+	}
+
+	/**
+	 * the request for the Foo that owns the object, or {@code null} if it has none or it
+	 * belongs to some other replica.
+	 */
+	Request ownerRequestFor(KubernetesObject owned) {
+		var request = FooReconciler.ownerOf(owned);
+		return request != null && owns(request) ? request : null;
+	}
+
+	/**
+	 * drops requests that were queued before their key moved to another replica.
+	 */
+	Reconciler guard(Reconciler delegate) {
+		return request -> owns(request) ? delegate.reconcile(request) : new Result(false);
+	}
+
+	@Override
+	public void close() {
+		this.executor.shutdownNow();
+		if (this.properties.isEnabled()) {
+			var response = this.leases.delete(this.properties.getLeaseNamespace(), this.leaseName);
+			if (!response.isSuccess()) {
+				log.warn("could not delete the lease " + this.leaseName + ". got code " + response.getHttpStatusCode()
+						+ ". The other replicas take over its keys once it expires.");
+			}
+		}
+	}
+
+	private void heartbeatAndRefresh() {
+		try {
+			heartbeat();
+			refresh();
+		}
+		catch (Exception e) {
+			log.warn("could not refresh the shard membership. Keeping the current one.", e);
+		}
+	}
+
+	private void heartbeat() throws ApiException {
+		var now = OffsetDateTime.now();
+		var leaseDurationSeconds = (int) this.properties.getLeaseDuration().toSeconds();
+		var existing = this.leases.get(this.properties.getLeaseNamespace(), this.leaseName);
+		if (existing.getHttpStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+			var lease = new V1Lease() //
+					.metadata(new V1ObjectMeta().namespace(this.properties.getLeaseNamespace()).name(this.leaseName)
+							.putLabelsItem(MEMBER_LABEL, "true")) //
+					.spec(new V1LeaseSpec().holderIdentity(this.identity).leaseDurationSeconds(leaseDurationSeconds)
+							.acquireTime(now).renewTime(now));
+			this.leases.create(lease).throwsApiException();
+			return;
+		}
+		var lease = existing.throwsApiException().getObject();
+		lease.getSpec().holderIdentity(this.identity).leaseDurationSeconds(leaseDurationSeconds).renewTime(now);
+		this.leases.update(lease).throwsApiException();
+	}
+
+	private void refresh() throws ApiException {
+		var now = OffsetDateTime.now();
+		var members = new TreeSet<String>();
+		members.add(this.identity);
+		for (var lease : memberLeases().getItems()) {
+			var spec = lease.getSpec();
+			if (spec == null || spec.getHolderIdentity() == null || spec.getRenewTime() == null
+					|| spec.getLeaseDurationSeconds() == null) {
+				continue;
+			}
+			var expiry = spec.getRenewTime().plusSeconds(spec.getLeaseDurationSeconds());
+			if (expiry.isAfter(now)) {
+				members.add(spec.getHolderIdentity());
+			}
+			else if (expiry.plus(this.properties.getDeleteExpiredAfter()).isBefore(now)) {
+				deleteAbandoned(lease);
+			}
+		}
+		if (!members.equals(this.ring.members())) {
+			log.info("the shard members changed from " + this.ring.members() + " to " + members);
+			this.ring = new ShardRing(members, this.properties.getVirtualNodes());
+			this.rebalances.increment();
+			this.rebalanceListeners.forEach(Runnable::run);
+		}
+	}
+
+	// every replica may try this at once: all but the first get a 404
+	private void deleteAbandoned(V1Lease lease) {
+		var name = lease.getMetadata().getName();
+		if (this.leaseName.equals(name)) {
+			return;
+		}
+		var response = this.leases.delete(this.properties.getLeaseNamespace(), name);
+		if (response.isSuccess()) {
+			log.info("deleted the lease " + name + ", abandoned by " + lease.getSpec().getHolderIdentity());
+		}
+		else if (response.getHttpStatusCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+			log.warn("could not delete the abandoned lease " + name + ". got code " + response.getHttpStatusCode());
+		}
+	}
+
+	// every replica lists every lease every renew-period, so this is worth doing in protobuf
+	private V1LeaseList memberLeases() throws ApiException {
+		if (this.memberLeases != null) {
+			return this.memberLeases.list(this.properties.getLeaseNamespace(), MEMBER_LABEL, null);
+		}
+		var options = new ListOptions();
+		options.setLabelSelector(MEMBER_LABEL);
+		return this.leases.list(this.properties.getLeaseNamespace(), options).throwsApiException().getObject();
+	}
+
+}
@@ -0,0 +1,135 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.extended.controller.ControllerWatch;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.workqueue.DelayingQueue;
+import io.kubernetes.client.informer.ResourceEventHandler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * a {@link ControllerWatch} that treats periodic resyncs differently from real changes.
+ * the informer resyncs every object at the same instant, so instead of dumping all of
+ * them on the queue at once each key is delayed by a stable, hash-derived slot within the
+ * resync period: keys are spread evenly over the period and each key is resynced once per
+ * period. resyncs of objects that fail the {@code resyncFilter} never reach the queue at
+ * all.
+ */
+class StaggeredResyncWatch<ApiType extends KubernetesObject> implements ControllerWatch<ApiType> {
+
+	private final Class<ApiType> resourceClass;
+
+	private final DelayingQueue<Request> queue;
+
+	private final DelayingQueue<Request> resyncQueue;
+
+	private final Function<ApiType, Request> keyFunc;
+
+	private final Predicate<ApiType> resyncFilter;
+
+	private final Duration resyncPeriod;
+
+	StaggeredResyncWatch(Class<ApiType> resourceClass, DelayingQueue<Request> queue,
+			Function<ApiType, Request> keyFunc, Predicate<ApiType> resyncFilter, Duration resyncPeriod) {
+		this(resourceClass, queue, queue, keyFunc, resyncFilter, resyncPeriod);
+	}
+
+	/**
+	 * resyncs go to {@code resyncQueue}, e.g. a less urgent lane of the same
+	 * {@link LanedWorkQueue}, and real changes to {@code queue}.
+	 */
+	StaggeredResyncWatch(Class<ApiType> resourceClass, DelayingQueue<Request> queue,
+			DelayingQueue<Request> resyncQueue, Function<ApiType, Request> keyFunc, Predicate<ApiType> resyncFilter,
+			Duration resyncPeriod) {
+		this.resourceClass = resourceClass;
+		this.queue = queue;
+		this.resyncQueue = resyncQueue;
+		this.keyFunc = keyFunc;
+		this.resyncFilter = resyncFilter;
+		this.resyncPeriod = resyncPeriod;
+	}
+
+	static Request requestFor(KubernetesObject object) {
+		return new Request(object.getMetadata().getNamespace(), object.getMetadata().getName());
+	}
+
+	@Override
+	public Class<ApiType> getResourceClass() {
+		return this.resourceClass;
+	}
+
+	@Override
+	public Duration getResyncPeriod() {
+		return this.resyncPeriod;
+	}
+
+	@Override
+	public ResourceEventHandler<ApiType> getResourceEventHandler() {
+		return new ResourceEventHandler<>() {
+
+			@Override
+			public void onAdd(ApiType obj) {
+				enqueue(obj);
+			}
+
+			@Override
+			public void onUpdate(ApiType oldObj, ApiType newObj) {
+				if (isResync(oldObj, newObj)) {
+					if (resyncFilter.test(newObj)) {
+						enqueueStaggered(newObj);
+					}
+					return;
+				}
+				enqueue(newObj);
+			}
+
+			@Override
+			public void onDelete(ApiType obj, boolean deletedFinalStateUnknown) {
+				enqueue(obj);
+			}
+
+		};
+	}
+
+	private void enqueue(ApiType obj) {
+		var request = this.keyFunc.apply(obj);
+		if (request != null) {
+			this.queue.add(request);
+		}
+	}
+
+	private void enqueueStaggered(ApiType obj) {
+		var request = this.keyFunc.apply(obj);
+		if (request == null) {
+			return;
+		}
+		var periodMillis = this.resyncPeriod.toMillis();
+		if (periodMillis <= 0) {
+			this.resyncQueue.add(request);
+			return;
+		}
+		var slot = Math.floorMod(mix(request.getNamespace() + '/' + request.getName()), periodMillis);
+		this.resyncQueue.addAfter(request, Duration.ofMillis(slot));
+	}
+
+	private static boolean isResync(KubernetesObject oldObj, KubernetesObject newObj) {
+		return oldObj != null && Objects.equals(oldObj.getMetadata().getResourceVersion(),
+				newObj.getMetadata().getResourceVersion());
+	}
+
+	// String.hashCode() puts foo-1, foo-2, ... right next to each other, so scramble it
+	private static long mix(String key) {
+		long h = key.hashCode();
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+
+}
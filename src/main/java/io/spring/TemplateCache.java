@@ -0,0 +1,56 @@
+package io.spring;
+
+import com.google.gson.JsonElement;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.util.Yaml;
+import lombok.SneakyThrows;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * parses each YAML template once, at startup, and keeps the result around as an
+ * (unexposed) JSON tree. the templates ship on the classpath, so they never change while
+ * we run.
+ * <p>
+ * this saves reading the resource and running SnakeYAML on every reconcile, but it is not
+ * free: every {@link #copyOf(Class)} is a reflective Gson bind of the whole tree, which
+ * allocates every object in the result again and sets each field through reflection. see
+ * {@code TemplateBenchmarks} for what that costs next to the YAML parse it replaced.
+ */
+class TemplateCache {
+
+	private final Map<Class<?>, JsonElement> prototypes = new ConcurrentHashMap<>();
+
+	private final JSON json;
+
+	TemplateCache(JSON json) {
+		this.json = json;
+	}
+
+	<T> TemplateCache register(Class<T> type, Resource resource) {
+		this.prototypes.put(type, parse(type, resource));
+		return this;
+	}
+
+	/**
+	 * a deep copy of the prototype parsed for the given type, bound afresh from the JSON
+	 * tree, so callers are free to mutate it.
+	 */
+	<T> T copyOf(Class<T> type) {
+		var prototype = this.prototypes.get(type);
+		Assert.notNull(prototype, () -> "there is no template registered for " + type.getName());
+		return this.json.getGson().fromJson(prototype, type);
+	}
+
+	@SneakyThrows
+	private JsonElement parse(Class<?> type, Resource resource) {
+		try (var reader = new InputStreamReader(resource.getInputStream())) {
+			return this.json.getGson().toJsonTree(Yaml.loadAs(reader, type));
+		}
+	}
+
+}
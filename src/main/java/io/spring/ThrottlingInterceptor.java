@@ -0,0 +1,80 @@
+package io.spring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * client-side QPS and burst limits for everything that goes through the
+ * {@code ApiClient}. reads ({@code GET}) and writes (everything else) draw from separate
+ * buckets, so a relist can't starve writes and a write storm can't starve reads. watches
+ * are long-running and don't count against either bucket, and neither do {@code Lease}
+ * renewals, which must never queue up behind reconciles. time spent waiting ends up in the
+ * {@code foo.api.throttle} timer.
+ * <p>
+ * a call made during a reconcile never waits past its {@link ReconcileDeadline}: if the
+ * next token is further out than that, the deadline is run out there and then, and the
+ * call fails without waiting at all.
+ */
+class ThrottlingInterceptor implements Interceptor {
+
+	private static final String LEASES = "/apis/coordination.k8s.io/";
+
+	private final TokenBucket reads;
+
+	private final TokenBucket writes;
+
+	private final Timer readWaits;
+
+	private final Timer writeWaits;
+
+	ThrottlingInterceptor(FooControllerProperties.Api api, MeterRegistry meterRegistry) {
+		this.reads = new TokenBucket(api.getReadQps(), api.getReadBurst());
+		this.writes = new TokenBucket(api.getWriteQps(), api.getWriteBurst());
+		this.readWaits = waits("read", meterRegistry);
+		this.writeWaits = waits("write", meterRegistry);
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		var request = chain.request();
+		if ("true".equals(request.url().queryParameter("watch"))
+				|| request.url().encodedPath().startsWith(LEASES)) {
+			return chain.proceed(request);
+		}
+		var read = "GET".equals(request.method());
+		var bucket = read ? this.reads : this.writes;
+		var deadline = ReconcileDeadline.current();
+		var start = System.nanoTime();
+		try {
+			if (deadline == null) {
+				bucket.acquire();
+			}
+			else if (!bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadline.remainingMillis())))) {
+				// the reconcile can't finish in time anyway: the sooner it backs off, the better
+				deadline.expire();
+				throw new InterruptedIOException("the reconcile would run out of time waiting for the client-side "
+						+ "rate limiter before " + request.method() + " " + request.url().encodedPath());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the client-side rate limiter");
+		}
+		(read ? this.readWaits : this.writeWaits).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		return chain.proceed(request);
+	}
+
+	private static Timer waits(String verb, MeterRegistry meterRegistry) {
+		return Timer.builder("foo.api.throttle") //
+				.description("time spent waiting on the client-side API rate limiter") //
+				.tag("verb", verb) //
+				.register(meterRegistry);
+	}
+
+}
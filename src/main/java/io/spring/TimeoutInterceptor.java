@@ -0,0 +1,54 @@
+package io.spring;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * per-call connect and read timeouts for everything but watches, which are meant to sit
+ * idle between events. a call made during a reconcile is further held to whatever is
+ * left of its {@link ReconcileDeadline}, and cancelled if that runs out while the call is
+ * in flight.
+ */
+class TimeoutInterceptor implements Interceptor {
+
+	private final FooControllerProperties.Api api;
+
+	TimeoutInterceptor(FooControllerProperties.Api api) {
+		this.api = api;
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		var request = chain.request();
+		if ("true".equals(request.url().queryParameter("watch"))) {
+			return chain.proceed(request);
+		}
+		var connectTimeout = this.api.getConnectTimeout().toMillis();
+		var readTimeout = this.api.getReadTimeout().toMillis();
+		var deadline = ReconcileDeadline.current();
+		if (deadline != null) {
+			var remaining = deadline.remainingMillis();
+			if (remaining <= 0 || deadline.isExpired()) {
+				throw new InterruptedIOException("the reconcile ran out of time before " + request.method() + " "
+						+ request.url().encodedPath());
+			}
+			deadline.register(chain.call());
+			connectTimeout = atMost(connectTimeout, remaining);
+			readTimeout = atMost(readTimeout, remaining);
+		}
+		return chain.withConnectTimeout((int) connectTimeout, TimeUnit.MILLISECONDS) //
+				.withReadTimeout((int) readTimeout, TimeUnit.MILLISECONDS) //
+				.withWriteTimeout((int) readTimeout, TimeUnit.MILLISECONDS) //
+				.proceed(request);
+	}
+
+	// a timeout of 0 means none at all
+	private static long atMost(long timeout, long limit) {
+		return timeout <= 0 ? limit : Math.min(timeout, limit);
+	}
+
+}
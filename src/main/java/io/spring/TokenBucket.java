@@ -0,0 +1,71 @@
+package io.spring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a token bucket holding up to {@code burst} tokens and refilling at {@code qps} tokens
+ * per second. {@link #reserve()} takes a token (possibly one that will only exist in the
+ * future) and says how long the caller has to wait for it, so that nobody sleeps while
+ * holding the lock. a {@code qps} of zero or less means no limit at all.
+ */
+class TokenBucket {
+
+	private final long nanosPerToken;
+
+	private final long burstNanos;
+
+	private long nextFreeNanos;
+
+	TokenBucket(double qps, int burst) {
+		this.nanosPerToken = qps <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / qps);
+		this.burstNanos = Math.max(0, burst - 1) * this.nanosPerToken;
+		this.nextFreeNanos = System.nanoTime() - this.burstNanos;
+	}
+
+	/**
+	 * @return how many nanoseconds to wait before using the reserved token
+	 */
+	synchronized long reserve() {
+		return reserve(Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return how many nanoseconds to wait before using the reserved token, or {@code -1}
+	 * if that would be more than {@code maxWaitNanos}, in which case nothing is reserved
+	 */
+	private synchronized long reserve(long maxWaitNanos) {
+		if (this.nanosPerToken == 0) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		// a bucket can't hold more than burst tokens, however long it sat unused
+		this.nextFreeNanos = Math.max(this.nextFreeNanos, now - this.burstNanos);
+		long wait = Math.max(0, this.nextFreeNanos - now);
+		if (wait > maxWaitNanos) {
+			return -1;
+		}
+		this.nextFreeNanos += this.nanosPerToken;
+		return wait;
+	}
+
+	void acquire() throws InterruptedException {
+		long wait = reserve();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * {@link #acquire()}, unless the token is further out than {@code maxWaitNanos}: then
+	 * this gives up right away, and leaves the token to someone else.
+	 * @return whether we got a token
+	 */
+	boolean tryAcquire(long maxWaitNanos) throws InterruptedException {
+		long wait = reserve(maxWaitNanos);
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+		return wait >= 0;
+	}
+
+}
@@ -0,0 +1,74 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * runs every object another {@link ListerWatcher} lists or watches through a transform,
+ * before the informer ever sees it. this is how we keep the informer caches down to the
+ * fields the reconciler actually reads, see {@link CacheTransforms}.
+ */
+class TransformingListerWatcher<ApiType extends KubernetesObject, ApiListType extends KubernetesListObject>
+		implements ListerWatcher<ApiType, ApiListType> {
+
+	private final ListerWatcher<ApiType, ApiListType> delegate;
+
+	private final UnaryOperator<ApiType> transform;
+
+	TransformingListerWatcher(ListerWatcher<ApiType, ApiListType> delegate, UnaryOperator<ApiType> transform) {
+		this.delegate = delegate;
+		this.transform = transform;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public ApiListType list(CallGeneratorParams params) throws ApiException {
+		var list = this.delegate.list(params);
+		((List<ApiType>) list.getItems()).replaceAll(this.transform);
+		return list;
+	}
+
+	@Override
+	public Watchable<ApiType> watch(CallGeneratorParams params) throws ApiException {
+		var watch = this.delegate.watch(params);
+		return new Watchable<>() {
+
+			@Override
+			public boolean hasNext() {
+				return watch.hasNext();
+			}
+
+			@Override
+			public Watch.Response<ApiType> next() {
+				var response = watch.next();
+				// errors carry a Status instead of an object, and bookmarks nothing but a resourceVersion
+				if (response.object != null && !"BOOKMARK".equals(response.type)) {
+					response.object = transform.apply(response.object);
+				}
+				return response;
+			}
+
+			@Override
+			public Iterator<Watch.Response<ApiType>> iterator() {
+				return this;
+			}
+
+			@Override
+			public void close() throws IOException {
+				watch.close();
+			}
+
+		};
+	}
+
+}
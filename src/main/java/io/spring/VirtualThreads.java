@@ -0,0 +1,28 @@
+package io.spring;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * we compile against Java 17, so {@code Thread.ofVirtual()} is looked up reflectively:
+ * on a Java 21 runtime you get a factory for named virtual threads, anywhere else you get
+ * nothing and the caller falls back to platform threads.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	static Optional<ThreadFactory> factory(String namePrefix) {
+		try {
+			var builderType = Class.forName("java.lang.Thread$Builder");
+			var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return Optional.empty();
+		}
+	}
+
+}
@@ -34,6 +34,14 @@ public class V1FooStatus {
   @SerializedName(SERIALIZED_NAME_NAME)
   private String name;
 
+  public static final String SERIALIZED_NAME_OBSERVED_GENERATION = "observedGeneration";
+  @SerializedName(SERIALIZED_NAME_OBSERVED_GENERATION)
+  private Long observedGeneration;
+
+  public static final String SERIALIZED_NAME_CONTENT_HASH = "contentHash";
+  @SerializedName(SERIALIZED_NAME_CONTENT_HASH)
+  private String contentHash;
+
 
   public V1FooStatus name(String name) {
     
@@ -58,6 +66,52 @@ public class V1FooStatus {
   }
 
 
+  public V1FooStatus observedGeneration(Long observedGeneration) {
+    
+    this.observedGeneration = observedGeneration;
+    return this;
+  }
+
+   /**
+   * The metadata.generation of the Foo the controller last reconciled
+   * @return observedGeneration
+  **/
+  @javax.annotation.Nullable
+  @ApiModelProperty(value = "The metadata.generation of the Foo the controller last reconciled")
+
+  public Long getObservedGeneration() {
+    return observedGeneration;
+  }
+
+
+  public void setObservedGeneration(Long observedGeneration) {
+    this.observedGeneration = observedGeneration;
+  }
+
+
+  public V1FooStatus contentHash(String contentHash) {
+    
+    this.contentHash = contentHash;
+    return this;
+  }
+
+   /**
+   * Hash of the content rendered for the observed generation
+   * @return contentHash
+  **/
+  @javax.annotation.Nullable
+  @ApiModelProperty(value = "Hash of the content rendered for the observed generation")
+
+  public String getContentHash() {
+    return contentHash;
+  }
+
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -67,12 +121,14 @@ public class V1FooStatus {
       return false;
     }
     V1FooStatus v1FooStatus = (V1FooStatus) o;
-    return Objects.equals(this.name, v1FooStatus.name);
+    return Objects.equals(this.name, v1FooStatus.name) &&
+        Objects.equals(this.observedGeneration, v1FooStatus.observedGeneration) &&
+        Objects.equals(this.contentHash, v1FooStatus.contentHash);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name);
+    return Objects.hash(name, observedGeneration, contentHash);
   }
 
 
@@ -81,6 +137,8 @@ public class V1FooStatus {
     StringBuilder sb = new StringBuilder();
     sb.append("class V1FooStatus {\n");
     sb.append("    name: ").append(toIndentedString(name)).append("\n");
+    sb.append("    observedGeneration: ").append(toIndentedString(observedGeneration)).append("\n");
+    sb.append("    contentHash: ").append(toIndentedString(contentHash)).append("\n");
     sb.append("}");
     return sb.toString();
   }
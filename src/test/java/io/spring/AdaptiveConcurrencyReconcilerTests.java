@@ -0,0 +1,139 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyReconcilerTests {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final InstrumentedWorkQueue<Request> queue = new InstrumentedWorkQueue<>(
+			new LanedWorkQueue<>(Request::getNamespace),
+			new JitteredExponentialRateLimiter<>(Duration.ofMillis(5), Duration.ofMinutes(5), 0.2),
+			new SimpleMeterRegistry());
+
+	private final FooControllerProperties.Workers workers = new FooControllerProperties.Workers();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	/**
+	 * how long each reconcile takes, on {@link #clock}.
+	 */
+	private volatile Duration latency = Duration.ofMillis(100);
+
+	@AfterEach
+	void close() {
+		this.queue.shutDown();
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	void noKeyIsTakenWithoutAPermit() throws Exception {
+		var reconciler = reconciler(); // two workers
+		backlog(3);
+		var workQueue = reconciler.workQueue();
+		var first = workQueue.get();
+		var second = workQueue.get();
+
+		var third = CompletableFuture.supplyAsync(() -> {
+			try {
+				return workQueue.get();
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, this.executor);
+		assertThatThrownBy(() -> third.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+		assertThat(workQueue.length()).isEqualTo(1); // still there for whoever gets a permit first
+
+		workQueue.done(first);
+		assertThat(third.get(5, TimeUnit.SECONDS)).isNotNull().isNotIn(first, second);
+		assertThat(workQueue.length()).isZero();
+	}
+
+	@Test
+	void theLimitGrowsWithTheBacklog() {
+		this.workers.setAdaptive(true);
+		this.workers.setMaxCount(4);
+		var reconciler = reconciler();
+		backlog(10);
+
+		for (var expected : new int[] { 3, 4, 4 }) {
+			adjustAfter(reconciler);
+			assertThat(reconciler.limit()).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void theLimitBacksOffByAQuarterWhenReconcilesAreSlow() {
+		this.workers.setAdaptive(true);
+		this.workers.setCount(8);
+		this.workers.setMaxCount(8);
+		var reconciler = reconciler();
+		backlog(10); // however much there is to do
+		this.latency = this.workers.getTargetLatency().multipliedBy(2);
+
+		for (var expected : new int[] { 6, 5, 4, 3, 2, 1, 1 }) {
+			adjustAfter(reconciler);
+			assertThat(reconciler.limit()).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void theLimitDriftsDownWhileThereIsNothingToDo() {
+		this.workers.setAdaptive(true);
+		this.workers.setCount(3);
+		var reconciler = reconciler();
+
+		for (var expected : new int[] { 2, 1, 1 }) {
+			adjustAfter(reconciler);
+			assertThat(reconciler.limit()).isEqualTo(expected);
+		}
+		backlog(1); // as much as the one worker can take on: no reason to grow
+		adjustAfter(reconciler);
+		assertThat(reconciler.limit()).isEqualTo(1);
+	}
+
+	@Test
+	void theLimitIsLeftAloneBetweenAdjustments() {
+		this.workers.setAdaptive(true);
+		var reconciler = reconciler();
+		backlog(10);
+		reconciler.reconcile(new Request("default", "demo")); // 100ms into the first second
+		assertThat(reconciler.limit()).isEqualTo(2);
+	}
+
+	private AdaptiveConcurrencyReconciler reconciler() {
+		return new AdaptiveConcurrencyReconciler(request -> {
+			this.clock.addAndGet(this.latency.toNanos());
+			return new Result(false);
+		}, this.queue, this.workers, new SimpleMeterRegistry(), this.clock::get);
+	}
+
+	private void backlog(int size) {
+		for (var i = 0; i < size; i++) {
+			this.queue.add(new Request("default", "foo-" + i));
+		}
+	}
+
+	// a second goes by, and then one reconcile finishes
+	private void adjustAfter(AdaptiveConcurrencyReconciler reconciler) {
+		this.clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		reconciler.reconcile(new Request("default", "demo"));
+	}
+
+}
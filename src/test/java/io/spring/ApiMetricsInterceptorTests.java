@@ -0,0 +1,97 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ApiMetricsInterceptorTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	ApiMetricsInterceptorTests() throws IOException {
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void everyCallIsTimedByVerbResourceAndCode() {
+		var configMaps = configMaps(this.server.url());
+		var configMap = new V1ConfigMap().metadata(new V1ObjectMeta().namespace("default").name("demo"));
+		configMaps.create(configMap);
+		configMaps.create(configMap);
+		configMaps.get("default", "demo");
+		configMaps.get("default", "missing");
+		configMaps.list("default");
+		configMaps.delete("default", "demo");
+
+		assertThat(count("create", "configmaps", "201")).isEqualTo(1);
+		assertThat(count("create", "configmaps", "409")).isEqualTo(1);
+		assertThat(count("get", "configmaps", "200")).isEqualTo(1);
+		assertThat(count("get", "configmaps", "404")).isEqualTo(1);
+		assertThat(count("list", "configmaps", "200")).isEqualTo(1);
+		assertThat(count("delete", "configmaps", "200")).isEqualTo(1);
+	}
+
+	@Test
+	void aCallThatNeverGotAnAnswerIsAnIoError() throws IOException {
+		int port;
+		try (var socket = new ServerSocket(0)) { // nobody listens there once it's closed
+			port = socket.getLocalPort();
+		}
+		var configMaps = configMaps("http://127.0.0.1:" + port);
+		catchThrowable(() -> configMaps.get("default", "demo"));
+		assertThat(count("get", "configmaps", "IO_ERROR")).isEqualTo(1);
+	}
+
+	@Test
+	void pathsAreReducedToTheirResource() {
+		assertThat(path("/api/v1/namespaces/default/configmaps"))
+				.isEqualTo(new ApiMetricsInterceptor.Path("configmaps", false));
+		assertThat(path("/api/v1/namespaces/default/configmaps/demo"))
+				.isEqualTo(new ApiMetricsInterceptor.Path("configmaps", true));
+		assertThat(path("/apis/spring.io/v1/namespaces/default/foos/demo/status"))
+				.isEqualTo(new ApiMetricsInterceptor.Path("foos/status", true));
+		assertThat(path("/apis/spring.io/v1/foos")).isEqualTo(new ApiMetricsInterceptor.Path("foos", false));
+		// a namespace is a resource of its own, too
+		assertThat(path("/api/v1/namespaces/default")).isEqualTo(new ApiMetricsInterceptor.Path("namespaces", true));
+		assertThat(path("/version")).isEqualTo(new ApiMetricsInterceptor.Path("unknown", false));
+	}
+
+	private GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> configMaps(String basePath) {
+		ApiClient apiClient = new ClientBuilder().setBasePath(basePath).build();
+		apiClient.setHttpClient(apiClient.getHttpClient().newBuilder() //
+				.addInterceptor(new ApiMetricsInterceptor(this.meterRegistry)) //
+				.build());
+		return new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1", "configmaps",
+				apiClient);
+	}
+
+	private long count(String verb, String resource, String code) {
+		var timer = this.meterRegistry.find("foo.api.requests").tag("verb", verb).tag("resource", resource)
+				.tag("code", code).timer();
+		return timer != null ? timer.count() : 0;
+	}
+
+	private static ApiMetricsInterceptor.Path path(String path) {
+		return ApiMetricsInterceptor.Path.of(HttpUrl.get("http://localhost" + path));
+	}
+
+}
@@ -0,0 +1,62 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1DeploymentSpec;
+import io.kubernetes.client.openapi.models.V1DeploymentStatus;
+import io.kubernetes.client.openapi.models.V1ManagedFieldsEntry;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooSpec;
+import io.spring.models.V1FooStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheTransformsTests {
+
+	@Test
+	void fooKeepsOnlyWhatTheReconcilerReads() {
+		var foo = new V1Foo().apiVersion("spring.io/v1").kind("Foo").metadata(bloated()
+				.generation(3L).labels(Map.of("team", "a"))).spec(new V1FooSpec().name("demo"))
+				.status(new V1FooStatus().observedGeneration(2L));
+		var cached = CacheTransforms.foo(foo);
+		assertThat(cached.getMetadata()).isEqualTo(new V1ObjectMeta().namespace("default").name("demo").uid("1234")
+				.resourceVersion("42").generation(3L).labels(Map.of("team", "a")));
+		assertThat(cached.getApiVersion()).isEqualTo("spring.io/v1");
+		assertThat(cached.getKind()).isEqualTo("Foo");
+		assertThat(cached.getSpec().getName()).isEqualTo("demo");
+		assertThat(cached.getStatus().getObservedGeneration()).isEqualTo(2L);
+	}
+
+	@Test
+	void ownedObjectsLoseManagedFieldsAndTheLastAppliedAnnotation() {
+		var deployment = new V1Deployment().metadata(bloated()).spec(new V1DeploymentSpec().replicas(2))
+				.status(new V1DeploymentStatus().replicas(2));
+		deployment.getMetadata().getAnnotations().put("keep", "me");
+		var cached = CacheTransforms.deployment(deployment);
+		assertThat(cached.getMetadata().getManagedFields()).isNull();
+		assertThat(cached.getMetadata().getAnnotations()).containsOnlyKeys("keep");
+		assertThat(cached.getMetadata().getUid()).isEqualTo("1234");
+		assertThat(cached.getSpec().getReplicas()).isEqualTo(2);
+		assertThat(cached.getStatus()).isNull();
+	}
+
+	@Test
+	void anEmptiedAnnotationMapGoesAway() {
+		var cached = CacheTransforms.owned(new V1Deployment().metadata(bloated()));
+		assertThat(cached.getMetadata().getAnnotations()).isNull();
+	}
+
+	private static V1ObjectMeta bloated() {
+		var annotations = new HashMap<String, String>();
+		annotations.put(CacheTransforms.LAST_APPLIED_ANNOTATION, "{\"apiVersion\":\"spring.io/v1\"}");
+		return new V1ObjectMeta().namespace("default").name("demo").uid("1234").resourceVersion("42")
+				.annotations(annotations)
+				.managedFields(List.of(new V1ManagedFieldsEntry().manager("kubectl").operation("Update")));
+	}
+
+}
@@ -0,0 +1,33 @@
+package io.spring;
+
+import io.spring.models.V1FooSpec;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentHashTests {
+
+	@Test
+	void sameContentSameHash() {
+		var first = new LinkedHashMap<String, String>();
+		first.put("index.html", "<h1> Hello, Josh </h1>");
+		first.put("other", "value");
+		var second = new LinkedHashMap<String, String>();
+		second.put("other", "value");
+		second.put("index.html", "<h1> Hello, Josh </h1>");
+		assertThat(ContentHash.of(first, new V1FooSpec().name("Josh")))
+				.isEqualTo(ContentHash.of(second, new V1FooSpec().name("Josh")));
+	}
+
+	@Test
+	void differentContentDifferentHash() {
+		var data = Map.of("index.html", "<h1> Hello, Josh </h1>");
+		assertThat(ContentHash.of(data, new V1FooSpec().name("Josh")))
+				.isNotEqualTo(ContentHash.of(data, new V1FooSpec().name("Mark")));
+		assertThat(ContentHash.of(Map.of("ab", "c"), null)).isNotEqualTo(ContentHash.of(Map.of("a", "bc"), null));
+	}
+
+}
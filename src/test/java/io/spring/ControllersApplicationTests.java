@@ -3,7 +3,7 @@ package io.spring;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "bootiful.controller.metrics.port=0")
 class ControllersApplicationTests {
 
 	@Test
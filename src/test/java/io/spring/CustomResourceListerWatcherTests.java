@@ -0,0 +1,136 @@
+package io.spring;
+
+import com.google.gson.JsonObject;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomResourceListerWatcherTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final ApiClient apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+
+	CustomResourceListerWatcherTests() throws IOException {
+		for (var i = 0; i < 7; i++) {
+			this.server.create("foos", foo("ns-" + (i % 2), "foo-" + i, i % 2 == 0 ? "blue" : "green"));
+		}
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void listsEverythingAPageAtATime() throws Exception {
+		var list = listerWatcher(new FooControllerProperties.Scope(), 3).list(new CallGeneratorParams(false, "0", null));
+		assertThat(list.getItems()).hasSize(7);
+		assertThat(list.getMetadata().getContinue()).isNull();
+		assertThat(list.getMetadata().getResourceVersion()).isNotEmpty();
+		assertThat(this.server.requestCounts()).containsEntry("list", 3L);
+	}
+
+	@Test
+	void withoutAPageSizeListsEverythingAtOnce() throws Exception {
+		var list = listerWatcher(new FooControllerProperties.Scope(), 0).list(new CallGeneratorParams(false, "0", null));
+		assertThat(list.getItems()).hasSize(7);
+		assertThat(this.server.requestCounts()).containsEntry("list", 1L);
+	}
+
+	@Test
+	void watchesAskForBookmarks() throws Exception {
+		var listerWatcher = listerWatcher(new FooControllerProperties.Scope(), 3);
+		var resourceVersion = listerWatcher.list(new CallGeneratorParams(false, null, null)).getMetadata()
+				.getResourceVersion();
+		try (var watch = listerWatcher.watch(new CallGeneratorParams(true, resourceVersion, 5))) {
+			var event = watch.next();
+			assertThat(event.type).isEqualTo("BOOKMARK");
+			assertThat(event.object.getMetadata().getResourceVersion()).isEqualTo(resourceVersion);
+		}
+	}
+
+	@Test
+	void onlyListsWhatIsInScope() throws Exception {
+		var scope = new FooControllerProperties.Scope();
+		scope.setNamespaces(List.of("ns-1"));
+		assertThat(names(listerWatcher(scope, 3).list(new CallGeneratorParams(false, "0", null))))
+				.containsExactly("foo-1", "foo-3", "foo-5");
+		scope = new FooControllerProperties.Scope();
+		scope.setLabelSelector("tenant=blue");
+		scope.setFieldSelector("metadata.name!=foo-0");
+		assertThat(names(listerWatcher(scope, 3).list(new CallGeneratorParams(false, "0", null))))
+				.containsExactlyInAnyOrder("foo-2", "foo-4", "foo-6");
+	}
+
+	@Test
+	void severalNamespacesAreListedTogetherAndEachWatchResumesFromItsOwnVersion() throws Exception {
+		this.server.create("foos", foo("ns-2", "elsewhere", "blue"));
+		var scope = new FooControllerProperties.Scope();
+		scope.setNamespaces(List.of("ns-0", "ns-1"));
+		var listerWatcher = listerWatcher(scope, 3);
+		var list = listerWatcher.list(new CallGeneratorParams(false, "0", null));
+		assertThat(list.getItems()).hasSize(7);
+		var listed = list.getMetadata().getResourceVersion();
+
+		try (var watch = listerWatcher.watch(new CallGeneratorParams(true, listed, 5))) {
+			this.server.create("foos", foo("ns-0", "foo-7", "blue"));
+			this.server.create("foos", foo("ns-2", "foo-8", "blue"));
+			this.server.create("foos", foo("ns-1", "foo-9", "green"));
+			assertThat(List.of(nextChange(watch).getMetadata().getName(), nextChange(watch).getMetadata().getName()))
+					.containsExactlyInAnyOrder("foo-7", "foo-9");
+		}
+
+		// the informer would come back with the version of the last event it saw, and get
+		// nothing it has already seen, in either namespace
+		this.server.create("foos", foo("ns-1", "foo-10", "green"));
+		try (var watch = listerWatcher.watch(new CallGeneratorParams(true, listed, 5))) {
+			assertThat(nextChange(watch).getMetadata().getName()).isEqualTo("foo-10");
+		}
+	}
+
+	private CustomResourceListerWatcher<V1Foo, V1FooList> listerWatcher(FooControllerProperties.Scope scope,
+			int pageSize) {
+		return new CustomResourceListerWatcher<>(this.apiClient, V1Foo.class, V1FooList.class, "spring.io", "v1",
+				"foos", scope, pageSize);
+	}
+
+	private static V1Foo nextChange(Watchable<V1Foo> watch) {
+		Watch.Response<V1Foo> event;
+		do {
+			event = watch.next();
+		}
+		while ("BOOKMARK".equals(event.type));
+		return event.object;
+	}
+
+	private static List<String> names(V1FooList list) {
+		return list.getItems().stream().map(foo -> foo.getMetadata().getName()).toList();
+	}
+
+	private static JsonObject foo(String namespace, String name, String tenant) {
+		var labels = new JsonObject();
+		labels.addProperty("tenant", tenant);
+		var metadata = new JsonObject();
+		metadata.addProperty("namespace", namespace);
+		metadata.addProperty("name", name);
+		metadata.add("labels", labels);
+		var foo = new JsonObject();
+		foo.addProperty("apiVersion", "spring.io/v1");
+		foo.addProperty("kind", "Foo");
+		foo.add("metadata", metadata);
+		return foo;
+	}
+
+}
@@ -0,0 +1,108 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.controller.reconciler.Result;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineReconcilerTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> configMaps;
+
+	DeadlineReconcilerTests() throws IOException {
+		var apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+		apiClient.setHttpClient(apiClient.getHttpClient().newBuilder() //
+				.addInterceptor(new TimeoutInterceptor(new FooControllerProperties.Api())) //
+				.build());
+		this.configMaps = new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1",
+				"configmaps", apiClient);
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void aHungCallIsCancelledAtTheDeadlineAndTheRequestRetried() {
+		this.server.latency(Duration.ofSeconds(10));
+		var reconciler = new DeadlineReconciler(request -> {
+			this.configMaps.list("default");
+			return new Result(false);
+		}, Duration.ofMillis(300), this.meterRegistry);
+
+		var start = System.nanoTime();
+		var result = reconciler.reconcile(new Request("default", "demo"));
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+		assertThat(result.isRequeue()).isTrue();
+		assertThat(this.meterRegistry.get("foo.reconcile.deadline.exceeded").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void workHandedToAnotherThreadIsHeldToTheSameDeadline() {
+		this.server.latency(Duration.ofSeconds(10));
+		var executor = ReconcileDeadline.propagating(Executors.newSingleThreadExecutor());
+		var reconciler = new DeadlineReconciler(request -> {
+			CompletableFuture.runAsync(() -> this.configMaps.list("default"), executor).join();
+			return new Result(false);
+		}, Duration.ofMillis(300), this.meterRegistry);
+
+		var start = System.nanoTime();
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isTrue();
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void theRateLimiterDoesNotHoldACallPastTheDeadline() {
+		var api = new FooControllerProperties.Api();
+		api.setReadQps(1);
+		api.setReadBurst(1);
+		var apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+		apiClient.setHttpClient(apiClient.getHttpClient().newBuilder() //
+				.addInterceptor(new ThrottlingInterceptor(api, this.meterRegistry)) //
+				.addInterceptor(new TimeoutInterceptor(api)) //
+				.build());
+		var configMaps = new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1",
+				"configmaps", apiClient);
+		var reconciler = new DeadlineReconciler(request -> {
+			configMaps.list("default"); // the one token there is
+			configMaps.list("default"); // a second out, when the deadline is 300ms
+			return new Result(false);
+		}, Duration.ofMillis(300), this.meterRegistry);
+
+		var start = System.nanoTime();
+		var result = reconciler.reconcile(new Request("default", "demo"));
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(300));
+		assertThat(result.isRequeue()).isTrue();
+		assertThat(this.meterRegistry.get("foo.reconcile.deadline.exceeded").counter().count()).isEqualTo(1);
+		assertThat(this.server.requestCounts()).containsEntry("list", 1L);
+	}
+
+	@Test
+	void reconcilesWithinTheDeadlineAreLeftAlone() {
+		var reconciler = new DeadlineReconciler(request -> {
+			assertThat(this.configMaps.list("default").isSuccess()).isTrue();
+			return new Result(false);
+		}, Duration.ofSeconds(5), this.meterRegistry);
+
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isFalse();
+		assertThat(this.meterRegistry.get("foo.reconcile.deadline.exceeded").counter().count()).isZero();
+	}
+
+}
@@ -0,0 +1,685 @@
+package io.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * just enough of a Kubernetes API server to run the controller against on a laptop:
+ * list, watch, get, create, replace, patch and delete for any resource under
+ * {@code /api/v1} and {@code /apis/{group}/{version}}, namespaced or not, including the
+ * {@code status} subresource. objects are kept as plain JSON.
+ * <ul>
+ * <li>one global, monotonically increasing {@code resourceVersion}, bumped on every
+ * write, checked on replace (409 on a mismatch) and used to resume watches. watches from a
+ * version older than the retained history get a {@code 410 Gone}.</li>
+ * <li>{@code uid}, {@code creationTimestamp} and {@code generation} are filled in, and the
+ * generation only moves when something other than status or metadata changes.</li>
+ * <li>label selectors ({@code k=v}, {@code k!=v}, {@code k}) and the
+ * {@code metadata.name}/{@code metadata.namespace} field selectors.</li>
+ * <li>{@code limit}/{@code continue} paging, and a bookmark on every idle second of a watch
+ * that asks for them.</li>
+ * <li>every patch type except JSON patch is treated as a JSON merge patch, and apply
+ * creates what isn't there.</li>
+ * <li>configurable latency on every request but watches, and a configurable fraction of
+ * them failing with a configurable status code.</li>
+ * <li>a log of every request but watches, body included, for tests that care about what
+ * exactly was sent, and in which order.</li>
+ * </ul>
+ * there is no admission, no defaulting, no validation and no garbage collection.
+ */
+@Slf4j
+class FakeKubernetesApiServer implements AutoCloseable {
+
+	private static final Set<String> STATUS_SUBRESOURCE = Set.of("foos", "deployments");
+
+	private static final int HISTORY = 100_000;
+
+	private record Event(long resourceVersion, String resource, String type, JsonObject object) {
+	}
+
+	private record Watcher(String resource, String namespace, Predicate<JsonObject> selector,
+			BlockingQueue<Event> events) {
+	}
+
+	/**
+	 * one request we served: what it asked for and when it came in and was answered, by
+	 * {@link System#nanoTime()}.
+	 */
+	record Call(String verb, String method, String path, Map<String, String> query, String contentType,
+			String body, long received, long answered) {
+
+		JsonObject json() {
+			return parse(this.body.getBytes(StandardCharsets.UTF_8));
+		}
+
+	}
+
+	private record Target(String apiVersion, String resource, String namespace, String name, String subresource) {
+
+		String key() {
+			return (this.namespace == null ? "" : this.namespace) + '/' + this.name;
+		}
+
+	}
+
+	private final Gson gson = new Gson();
+
+	private final Object lock = new Object();
+
+	private final Map<String, NavigableMap<String, JsonObject>> store = new HashMap<>();
+
+	private final Deque<Event> history = new ArrayDeque<>();
+
+	private final List<Watcher> watchers = new CopyOnWriteArrayList<>();
+
+	private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+
+	private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+	private final ThreadLocal<Call> call = new ThreadLocal<>();
+
+	private final AtomicLong resourceVersion = new AtomicLong(1000);
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final HttpServer server;
+
+	private volatile Duration latency = Duration.ZERO;
+
+	private volatile double errorRate;
+
+	private volatile int errorCode = 500;
+
+	FakeKubernetesApiServer() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	String url() {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort();
+	}
+
+	FakeKubernetesApiServer latency(Duration latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * fail this fraction of all requests (but watches) with the given status code.
+	 */
+	FakeKubernetesApiServer errors(double errorRate, int errorCode) {
+		this.errorRate = errorRate;
+		this.errorCode = errorCode;
+		return this;
+	}
+
+	/**
+	 * how many requests we've served, by verb ({@code list}, {@code watch}, {@code get},
+	 * {@code create}, {@code update}, {@code patch}, {@code delete}).
+	 */
+	Map<String, Long> requestCounts() {
+		var counts = new TreeMap<String, Long>();
+		this.requests.forEach((verb, count) -> counts.put(verb, count.get()));
+		return counts;
+	}
+
+	/**
+	 * every request but watches, in the order they were answered.
+	 */
+	List<Call> calls() {
+		return List.copyOf(this.calls);
+	}
+
+	void clearCalls() {
+		this.calls.clear();
+	}
+
+	/**
+	 * create an object without going through HTTP, as if someone had {@code kubectl
+	 * apply}'d it.
+	 */
+	JsonObject create(String resource, JsonObject object) {
+		synchronized (this.lock) {
+			var metadata = object.getAsJsonObject("metadata");
+			var target = new Target(object.get("apiVersion").getAsString(), resource,
+					metadata.has("namespace") ? metadata.get("namespace").getAsString() : null,
+					metadata.get("name").getAsString(), null);
+			return insert(target, object);
+		}
+	}
+
+	List<JsonObject> list(String resource) {
+		synchronized (this.lock) {
+			return this.store.getOrDefault(resource, new TreeMap<>()).values().stream().map(JsonObject::deepCopy)
+					.toList();
+		}
+	}
+
+	JsonObject get(String resource, String namespace, String name) {
+		synchronized (this.lock) {
+			var object = this.store.getOrDefault(resource, new TreeMap<>()).get(namespace + '/' + name);
+			return object == null ? null : object.deepCopy();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		var received = System.nanoTime();
+		try {
+			var query = query(exchange.getRequestURI().getRawQuery());
+			var target = target(exchange.getRequestURI().getPath());
+			if (target == null) {
+				respond(exchange, 404, status(404, "NotFound", exchange.getRequestURI().getPath()));
+				return;
+			}
+			var method = exchange.getRequestMethod();
+			var watch = "GET".equals(method) && "true".equals(query.get("watch"));
+			count(watch ? "watch" : verb(method, target));
+			if (watch) {
+				watch(exchange, target, query);
+				return;
+			}
+			var body = exchange.getRequestBody().readAllBytes();
+			this.call.set(new Call(verb(method, target), method, exchange.getRequestURI().getPath(), query,
+					exchange.getRequestHeaders().getFirst("Content-Type"), new String(body, StandardCharsets.UTF_8),
+					received, 0));
+			if (!this.latency.isZero()) {
+				Thread.sleep(this.latency.toMillis());
+			}
+			if (this.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < this.errorRate) {
+				respond(exchange, this.errorCode, status(this.errorCode, "InternalError", "injected failure"));
+				return;
+			}
+			switch (method) {
+				case "GET" -> {
+					if (target.name() == null) {
+						list(exchange, target, query);
+					}
+					else {
+						get(exchange, target);
+					}
+				}
+				case "POST" -> create(exchange, target, parse(body));
+				case "PUT" -> replace(exchange, target, parse(body));
+				case "PATCH" -> patch(exchange, target, exchange.getRequestHeaders().getFirst("Content-Type"), body);
+				case "DELETE" -> delete(exchange, target);
+				default -> respond(exchange, 405, status(405, "MethodNotAllowed", method));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception e) {
+			log.debug("the fake API server could not handle " + exchange.getRequestURI(), e);
+		}
+		finally {
+			this.call.remove();
+			exchange.close();
+		}
+	}
+
+	private void list(HttpExchange exchange, Target target, Map<String, String> query) throws IOException {
+		var selector = selector(query);
+		var limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : 0;
+		var from = query.get("continue");
+		var items = new JsonArray();
+		String next = null;
+		long version;
+		synchronized (this.lock) {
+			version = this.resourceVersion.get();
+			var objects = this.store.getOrDefault(target.resource(), new TreeMap<>());
+			var view = from == null ? objects : objects.tailMap(from, false);
+			for (var entry : view.entrySet()) {
+				var object = entry.getValue();
+				if (!inNamespace(object, target.namespace()) || !selector.test(object)) {
+					continue;
+				}
+				if (limit > 0 && items.size() == limit) {
+					next = keyOf(items.get(items.size() - 1).getAsJsonObject());
+					break;
+				}
+				items.add(object);
+			}
+			var list = new JsonObject();
+			list.addProperty("apiVersion", target.apiVersion());
+			list.addProperty("kind", "List");
+			var metadata = new JsonObject();
+			metadata.addProperty("resourceVersion", Long.toString(version));
+			if (next != null) {
+				metadata.addProperty("continue", next);
+			}
+			list.add("metadata", metadata);
+			list.add("items", items);
+			respond(exchange, 200, list);
+		}
+	}
+
+	private void get(HttpExchange exchange, Target target) throws IOException {
+		synchronized (this.lock) {
+			var object = this.store.getOrDefault(target.resource(), new TreeMap<>()).get(target.key());
+			if (object == null) {
+				respond(exchange, 404, status(404, "NotFound", target.key()));
+				return;
+			}
+			respond(exchange, 200, object);
+		}
+	}
+
+	private void create(HttpExchange exchange, Target target, JsonObject object) throws IOException {
+		var metadata = object.getAsJsonObject("metadata");
+		var named = new Target(target.apiVersion(), target.resource(), target.namespace(),
+				metadata.get("name").getAsString(), null);
+		synchronized (this.lock) {
+			if (this.store.getOrDefault(target.resource(), new TreeMap<>()).containsKey(named.key())) {
+				respond(exchange, 409, status(409, "AlreadyExists", named.key()));
+				return;
+			}
+			respond(exchange, 201, insert(named, object));
+		}
+	}
+
+	private void replace(HttpExchange exchange, Target target, JsonObject object) throws IOException {
+		synchronized (this.lock) {
+			var existing = this.store.getOrDefault(target.resource(), new TreeMap<>()).get(target.key());
+			if (existing == null) {
+				respond(exchange, 404, status(404, "NotFound", target.key()));
+				return;
+			}
+			var metadata = object.getAsJsonObject("metadata");
+			if (metadata != null && metadata.has("resourceVersion") && !metadata.get("resourceVersion").getAsString()
+					.equals(existing.getAsJsonObject("metadata").get("resourceVersion").getAsString())) {
+				respond(exchange, 409, status(409, "Conflict", "the object has been modified"));
+				return;
+			}
+			respond(exchange, 200, update(target, existing, object));
+		}
+	}
+
+	private void patch(HttpExchange exchange, Target target, String contentType, byte[] body) throws IOException {
+		if (contentType != null && contentType.startsWith("application/json-patch+json")) {
+			respond(exchange, 415, status(415, "UnsupportedMediaType", contentType));
+			return;
+		}
+		var patch = parse(body);
+		synchronized (this.lock) {
+			var existing = this.store.getOrDefault(target.resource(), new TreeMap<>()).get(target.key());
+			if (existing == null) {
+				if (contentType != null && contentType.startsWith("application/apply-patch")) {
+					patch.getAsJsonObject("metadata").addProperty("name", target.name());
+					respond(exchange, 201, insert(target, patch));
+				}
+				else {
+					respond(exchange, 404, status(404, "NotFound", target.key()));
+				}
+				return;
+			}
+			var merged = existing.deepCopy();
+			merge(merged, patch);
+			respond(exchange, 200, update(target, existing, merged));
+		}
+	}
+
+	private void delete(HttpExchange exchange, Target target) throws IOException {
+		synchronized (this.lock) {
+			var removed = this.store.getOrDefault(target.resource(), new TreeMap<>()).remove(target.key());
+			if (removed == null) {
+				respond(exchange, 404, status(404, "NotFound", target.key()));
+				return;
+			}
+			var copy = removed.deepCopy();
+			copy.getAsJsonObject("metadata").addProperty("resourceVersion",
+					Long.toString(this.resourceVersion.incrementAndGet()));
+			record(target.resource(), "DELETED", copy);
+			respond(exchange, 200, copy);
+		}
+	}
+
+	private void watch(HttpExchange exchange, Target target, Map<String, String> query) throws IOException {
+		var selector = selector(query);
+		var from = query.getOrDefault("resourceVersion", "");
+		var timeout = Duration.ofSeconds(Long.parseLong(query.getOrDefault("timeoutSeconds", "300")));
+		var bookmarks = "true".equals(query.get("allowWatchBookmarks"));
+		var watcher = new Watcher(target.resource(), target.namespace(), selector, new LinkedBlockingQueue<>());
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, 0);
+		var out = exchange.getResponseBody();
+		synchronized (this.lock) {
+			if (from.isEmpty() || "0".equals(from)) {
+				for (var object : this.store.getOrDefault(target.resource(), new TreeMap<>()).values()) {
+					if (inNamespace(object, target.namespace()) && selector.test(object)) {
+						watcher.events().add(new Event(this.resourceVersion.get(), target.resource(), "ADDED", object));
+					}
+				}
+			}
+			else {
+				var since = Long.parseLong(from);
+				var oldest = this.history.isEmpty() ? this.resourceVersion.get() : this.history.peekFirst()
+						.resourceVersion();
+				if (since < oldest - 1) {
+					write(out, "ERROR", status(410, "Expired", "too old resource version: " + since));
+					return;
+				}
+				for (var event : this.history) {
+					if (event.resourceVersion() > since && matches(watcher, event)) {
+						watcher.events().add(event);
+					}
+				}
+			}
+			this.watchers.add(watcher);
+		}
+		try {
+			var deadline = System.nanoTime() + timeout.toNanos();
+			while (System.nanoTime() < deadline) {
+				var event = watcher.events().poll(1, TimeUnit.SECONDS);
+				if (event != null) {
+					write(out, event.type(), event.object());
+				}
+				else if (bookmarks) {
+					write(out, "BOOKMARK", bookmark(target, watcher));
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e) { // the client went away
+			log.trace("watch closed", e);
+		}
+		finally {
+			this.watchers.remove(watcher);
+		}
+	}
+
+	// only as recent as the last event this watcher has been handed, or it could skip some
+	private JsonObject bookmark(Target target, Watcher watcher) {
+		var metadata = new JsonObject();
+		synchronized (this.lock) {
+			var pending = watcher.events().peek();
+			metadata.addProperty("resourceVersion", Long.toString(pending == null ? this.resourceVersion.get()
+					: pending.resourceVersion() - 1));
+		}
+		var bookmark = new JsonObject();
+		bookmark.addProperty("apiVersion", target.apiVersion());
+		bookmark.add("metadata", metadata);
+		return bookmark;
+	}
+
+	private JsonObject insert(Target target, JsonObject object) {
+		var metadata = object.getAsJsonObject("metadata");
+		if (target.namespace() != null) {
+			metadata.addProperty("namespace", target.namespace());
+		}
+		metadata.addProperty("uid", UUID.randomUUID().toString());
+		metadata.addProperty("creationTimestamp", Instant.now().truncatedTo(ChronoUnit.SECONDS)
+				.toString());
+		metadata.addProperty("generation", 1);
+		metadata.addProperty("resourceVersion", Long.toString(this.resourceVersion.incrementAndGet()));
+		this.store.computeIfAbsent(target.resource(), r -> new TreeMap<>()).put(target.key(), object);
+		record(target.resource(), "ADDED", object);
+		return object;
+	}
+
+	private JsonObject update(Target target, JsonObject existing, JsonObject desired) {
+		var updated = existing.deepCopy();
+		if ("status".equals(target.subresource())) {
+			updated.add("status", desired.get("status"));
+		}
+		else {
+			for (var entry : desired.entrySet()) {
+				if (!"status".equals(entry.getKey()) || !STATUS_SUBRESOURCE.contains(target.resource())) {
+					updated.add(entry.getKey(), entry.getValue());
+				}
+			}
+			if (!STATUS_SUBRESOURCE.contains(target.resource()) && !desired.has("status")) {
+				updated.remove("status");
+			}
+			// the server owns these
+			var metadata = updated.getAsJsonObject("metadata");
+			var existingMetadata = existing.getAsJsonObject("metadata");
+			for (var field : List.of("uid", "creationTimestamp", "generation", "namespace", "name")) {
+				metadata.add(field, existingMetadata.get(field));
+			}
+			if (!Objects.equals(withoutStatusAndMetadata(existing), withoutStatusAndMetadata(updated))) {
+				metadata.addProperty("generation", existingMetadata.get("generation").getAsLong() + 1);
+			}
+		}
+		if (updated.equals(existing)) { // a no-op write doesn't bump the resourceVersion
+			return existing;
+		}
+		updated.getAsJsonObject("metadata").addProperty("resourceVersion",
+				Long.toString(this.resourceVersion.incrementAndGet()));
+		this.store.get(target.resource()).put(target.key(), updated);
+		record(target.resource(), "MODIFIED", updated);
+		return updated;
+	}
+
+	private void record(String resource, String type, JsonObject object) {
+		var event = new Event(this.resourceVersion.get(), resource, type, object);
+		this.history.addLast(event);
+		if (this.history.size() > HISTORY) {
+			this.history.removeFirst();
+		}
+		for (var watcher : this.watchers) {
+			if (matches(watcher, event)) {
+				watcher.events().add(event);
+			}
+		}
+	}
+
+	private static boolean matches(Watcher watcher, Event event) {
+		return watcher.resource().equals(event.resource()) && inNamespace(event.object(), watcher.namespace())
+				&& watcher.selector().test(event.object());
+	}
+
+	private void write(OutputStream out, String type, JsonObject object) throws IOException {
+		var event = new JsonObject();
+		event.addProperty("type", type);
+		event.add("object", object);
+		out.write((this.gson.toJson(event) + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	// logged before the client can see the response, so that it never misses its own call
+	private void respond(HttpExchange exchange, int code, JsonObject body) throws IOException {
+		var call = this.call.get();
+		if (call != null) {
+			this.calls.add(new Call(call.verb(), call.method(), call.path(), call.query(), call.contentType(),
+					call.body(), call.received(), System.nanoTime()));
+		}
+		var bytes = this.gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(code, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+
+	private void count(String verb) {
+		this.requests.computeIfAbsent(verb, v -> new AtomicLong()).incrementAndGet();
+	}
+
+	private static String verb(String method, Target target) {
+		return switch (method) {
+			case "GET" -> target.name() == null ? "list" : "get";
+			case "POST" -> "create";
+			case "PUT" -> "update";
+			default -> method.toLowerCase();
+		};
+	}
+
+	private static JsonObject withoutStatusAndMetadata(JsonObject object) {
+		var copy = object.deepCopy();
+		copy.remove("status");
+		copy.remove("metadata");
+		return copy;
+	}
+
+	// RFC 7386
+	private static void merge(JsonObject target, JsonObject patch) {
+		for (var entry : patch.entrySet()) {
+			var value = entry.getValue();
+			if (value.isJsonNull()) {
+				target.remove(entry.getKey());
+			}
+			else if (value.isJsonObject() && target.has(entry.getKey()) && target.get(entry.getKey()).isJsonObject()) {
+				merge(target.getAsJsonObject(entry.getKey()), value.getAsJsonObject());
+			}
+			else {
+				target.add(entry.getKey(), value.deepCopy());
+			}
+		}
+	}
+
+	private static boolean inNamespace(JsonObject object, String namespace) {
+		if (namespace == null) {
+			return true;
+		}
+		var actual = object.getAsJsonObject("metadata").get("namespace");
+		return actual != null && namespace.equals(actual.getAsString());
+	}
+
+	private static String keyOf(JsonObject object) {
+		var metadata = object.getAsJsonObject("metadata");
+		var namespace = metadata.get("namespace");
+		return (namespace == null ? "" : namespace.getAsString()) + '/' + metadata.get("name").getAsString();
+	}
+
+	private static Predicate<JsonObject> selector(Map<String, String> query) {
+		Predicate<JsonObject> selector = object -> true;
+		var labelSelector = query.get("labelSelector");
+		if (labelSelector != null && !labelSelector.isBlank()) {
+			for (var requirement : labelSelector.split(",")) {
+				selector = selector.and(labelRequirement(requirement.trim()));
+			}
+		}
+		var fieldSelector = query.get("fieldSelector");
+		if (fieldSelector != null && !fieldSelector.isBlank()) {
+			for (var requirement : fieldSelector.split(",")) {
+				var parts = requirement.trim().split("!?=+", 2);
+				var negated = requirement.contains("!=");
+				var field = parts[0].replace("metadata.", "");
+				selector = selector.and(object -> {
+					var value = object.getAsJsonObject("metadata").get(field);
+					return negated != (value != null && value.getAsString().equals(parts[1]));
+				});
+			}
+		}
+		return selector;
+	}
+
+	private static Predicate<JsonObject> labelRequirement(String requirement) {
+		var negated = requirement.contains("!=");
+		var parts = requirement.split("!?=+", 2);
+		return object -> {
+			var labels = object.getAsJsonObject("metadata").getAsJsonObject("labels");
+			var value = labels == null ? null : labels.get(parts[0]);
+			if (parts.length == 1) {
+				return value != null;
+			}
+			return negated != (value != null && value.getAsString().equals(parts[1]));
+		};
+	}
+
+	private static Map<String, String> query(String rawQuery) {
+		var query = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (var pair : rawQuery.split("&")) {
+			var parts = pair.split("=", 2);
+			query.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+					parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+		}
+		return query;
+	}
+
+	/**
+	 * {@code /api/v1/...} or {@code /apis/{group}/{version}/...}, followed by either
+	 * {@code {resource}[/{name}]} or {@code namespaces/{namespace}/{resource}[/{name}[/{subresource}]]}
+	 */
+	private static Target target(String path) {
+		var segments = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toList();
+		String apiVersion;
+		int index;
+		if (segments.size() >= 3 && "api".equals(segments.get(0))) {
+			apiVersion = segments.get(1);
+			index = 2;
+		}
+		else if (segments.size() >= 4 && "apis".equals(segments.get(0))) {
+			apiVersion = segments.get(1) + '/' + segments.get(2);
+			index = 3;
+		}
+		else {
+			return null;
+		}
+		String namespace = null;
+		if ("namespaces".equals(segments.get(index)) && segments.size() >= index + 3) {
+			namespace = segments.get(index + 1);
+			index += 2;
+		}
+		var rest = new ArrayList<>(segments.subList(index, segments.size()));
+		while (rest.size() < 3) {
+			rest.add(null);
+		}
+		return new Target(apiVersion, rest.get(0), namespace, rest.get(1), rest.get(2));
+	}
+
+	private static JsonObject parse(byte[] body) {
+		JsonElement element = JsonParser.parseString(new String(body, StandardCharsets.UTF_8));
+		return element.getAsJsonObject();
+	}
+
+	private static JsonObject status(int code, String reason, String message) {
+		var status = new JsonObject();
+		status.addProperty("kind", "Status");
+		status.addProperty("apiVersion", "v1");
+		status.addProperty("status", "Failure");
+		status.addProperty("reason", reason);
+		status.addProperty("message", message);
+		status.addProperty("code", code);
+		return status;
+	}
+
+}
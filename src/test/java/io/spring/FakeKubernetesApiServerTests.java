@@ -0,0 +1,74 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.kubernetes.client.util.generic.options.ListOptions;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooSpec;
+import io.spring.models.V1FooStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FakeKubernetesApiServerTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final GenericKubernetesApi<V1Foo, V1FooList> foos = new GenericKubernetesApi<>(V1Foo.class,
+			V1FooList.class, "spring.io", "v1", "foos", new ClientBuilder().setBasePath(this.server.url()).build());
+
+	FakeKubernetesApiServerTests() throws IOException {
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void replacingAStaleVersionIsAConflict() {
+		var created = this.foos.create(foo("demo", "one")).getObject();
+		assertThat(created.getMetadata().getResourceVersion()).isNotEmpty();
+		assertThat(this.foos.update(foo("demo", "two").metadata(created.getMetadata())).isSuccess()).isTrue();
+		var stale = this.foos.update(foo("demo", "three").metadata(created.getMetadata()));
+		assertThat(stale.getHttpStatusCode()).isEqualTo(409);
+	}
+
+	@Test
+	void onlySpecChangesMoveTheGeneration() {
+		var created = this.foos.create(foo("demo", "one")).getObject();
+		assertThat(created.getMetadata().getGeneration()).isEqualTo(1);
+		var withStatus = this.foos
+				.updateStatus(created.status(new V1FooStatus().observedGeneration(1L)), V1Foo::getStatus).getObject();
+		assertThat(withStatus.getMetadata().getGeneration()).isEqualTo(1);
+		assertThat(withStatus.getStatus().getObservedGeneration()).isEqualTo(1);
+		var changed = this.foos.update(withStatus.spec(new V1FooSpec().name("two"))).getObject();
+		assertThat(changed.getMetadata().getGeneration()).isEqualTo(2);
+		assertThat(changed.getStatus().getObservedGeneration()).isEqualTo(1);
+	}
+
+	@Test
+	void listsPageByLimitAndContinue() {
+		for (var i = 0; i < 5; i++) {
+			this.foos.create(foo("foo-" + i, "foo"));
+		}
+		assertThat(this.server.list("foos")).hasSize(5);
+		var options = new ListOptions();
+		options.setLimit(3);
+		var first = this.foos.list("default", options).getObject();
+		assertThat(first.getItems()).hasSize(3);
+		options.setContinue(first.getMetadata().getContinue());
+		assertThat(this.foos.list("default", options).getObject().getItems()).hasSize(2);
+	}
+
+	private static V1Foo foo(String name, String specName) {
+		return new V1Foo().apiVersion("spring.io/v1").kind("Foo")
+				.metadata(new V1ObjectMeta().namespace("default").name(name)).spec(new V1FooSpec().name(specName));
+	}
+
+}
@@ -0,0 +1,578 @@
+package io.spring;
+
+import io.kubernetes.client.common.KubernetesListObject;
+import io.kubernetes.client.common.KubernetesObject;
+import io.kubernetes.client.custom.V1Patch;
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.impl.DefaultSharedIndexInformer;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ConfigMapList;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1DeploymentList;
+import io.kubernetes.client.openapi.models.V1DeploymentSpec;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1OwnerReference;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.Watchable;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooSpec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * the static helpers on their own, and whole reconciles against a
+ * {@link FakeKubernetesApiServer}. the informers are never started: {@link #sync()} copies
+ * what the server has into their caches, the way a watch would eventually.
+ */
+class FooReconcilerTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final FooControllerProperties properties = new FooControllerProperties();
+
+	private final ApiClient apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+
+	private final SharedIndexInformer<V1Foo> foos = informer(V1Foo.class);
+
+	private final SharedIndexInformer<V1ConfigMap> configMaps = informer(V1ConfigMap.class);
+
+	private final SharedIndexInformer<V1Deployment> deployments = informer(V1Deployment.class);
+
+	private final GenericKubernetesApi<V1Foo, V1FooList> foosApi;
+
+	private final GenericKubernetesApi<V1ConfigMap, V1ConfigMapList> configMapsApi;
+
+	private final GenericKubernetesApi<V1Deployment, V1DeploymentList> deploymentsApi;
+
+	FooReconcilerTests() throws IOException {
+		FooTypeAdapters.register(this.apiClient.getJSON());
+		this.foosApi = new GenericKubernetesApi<>(V1Foo.class, V1FooList.class, "spring.io", "v1", "foos",
+				this.apiClient);
+		this.configMapsApi = new GenericKubernetesApi<>(V1ConfigMap.class, V1ConfigMapList.class, "", "v1",
+				"configmaps", this.apiClient);
+		this.deploymentsApi = new GenericKubernetesApi<>(V1Deployment.class, V1DeploymentList.class, "apps", "v1",
+				"deployments", this.apiClient);
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void whatWeOwnMapsBackToItsFoo() {
+		var foo = new V1Foo().apiVersion("spring.io/v1").kind("Foo")
+				.metadata(new V1ObjectMeta().namespace("default").name("demo").uid("1234"));
+		var configMap = new V1ConfigMap()
+				.metadata(FooReconciler.own(new V1ObjectMeta().namespace("default").name("configmap-demo"), foo));
+		assertThat(FooReconciler.ownerOf(configMap)).isEqualTo(new Request("default", "demo"));
+
+		var someoneElses = new V1ConfigMap().metadata(new V1ObjectMeta().namespace("default").name("other")
+				.addOwnerReferencesItem(new V1OwnerReference().apiVersion("apps/v1").kind("ReplicaSet")
+						.name("other").uid("5678").controller(true)));
+		assertThat(FooReconciler.ownerOf(someoneElses)).isNull();
+		assertThat(FooReconciler.ownerOf(new V1ConfigMap().metadata(new V1ObjectMeta().name("loose")))).isNull();
+	}
+
+	@Test
+	void statusUpdatesDontCountAsChanges() {
+		var deployment = deployment("1", 1L);
+		assertThat(FooReconciler.changesWhatWeRender(deployment, deployment("1", 1L))).isFalse(); // resync
+		assertThat(FooReconciler.changesWhatWeRender(deployment, deployment("2", 1L))).isFalse(); // status
+		assertThat(FooReconciler.changesWhatWeRender(deployment, deployment("3", 2L))).isTrue(); // spec
+		var relabelled = deployment("4", 1L);
+		relabelled.getMetadata().putLabelsItem("app", "something-else");
+		assertThat(FooReconciler.changesWhatWeRender(deployment, relabelled)).isTrue();
+
+		var configMap = new V1ConfigMap().metadata(new V1ObjectMeta().name("configmap-demo").resourceVersion("1"));
+		var edited = new V1ConfigMap().metadata(new V1ObjectMeta().name("configmap-demo").resourceVersion("2"));
+		assertThat(FooReconciler.changesWhatWeRender(configMap, edited)).isTrue();
+	}
+
+	@Test
+	void aSteadyStateReconcileMakesNoApiCalls() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		var status = this.server.get("foos", "default", "demo").getAsJsonObject("status");
+		assertThat(status.get("observedGeneration").getAsLong()).isEqualTo(1);
+		assertThat(status.get("contentHash").getAsString()).isNotEmpty();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo"); // finds everything in place, and remembers what it saw
+		assertThat(this.server.calls()).isEmpty();
+		assertThat(reconciler.isUpToDate(cachedFoo("demo"))).isTrue();
+		reconcile(reconciler, "demo");
+		assertThat(this.server.calls()).isEmpty();
+	}
+
+	@Test
+	void aNewGenerationIsWrittenOut() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		reconcile(reconciler, "demo");
+		respec("demo", "SpringOne Tour, again");
+		assertThat(reconciler.isUpToDate(cachedFoo("demo"))).isFalse();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("configmaps")).hasSize(1);
+		assertThat(calls("deployments")).hasSize(1);
+		assertThat(calls("foos")).singleElement().satisfies(call -> {
+			assertThat(call.verb()).isEqualTo("update");
+			assertThat(call.path()).endsWith("/status");
+		});
+		assertThat(this.server.get("foos", "default", "demo").getAsJsonObject("status").get("observedGeneration")
+				.getAsLong()).isEqualTo(2);
+		assertThat(reconciler.isUpToDate(cachedFoo("demo"))).isFalse(); // until it has seen what it wrote
+		reconcile(reconciler, "demo");
+		assertThat(reconciler.isUpToDate(cachedFoo("demo"))).isTrue();
+	}
+
+	@Test
+	void theStatusIsOnlyWrittenWhenItChanges() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		this.configMapsApi.patch("default", "configmap-demo", V1Patch.PATCH_FORMAT_JSON_MERGE_PATCH,
+				new V1Patch("{\"data\":{\"index.html\":\"tampered with\"}}")).throwsApiException();
+		sync();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("configmaps")).singleElement().extracting(FakeKubernetesApiServer.Call::verb)
+				.isEqualTo("update");
+		assertThat(calls("foos")).isEmpty();
+		assertThat(this.server.get("configmaps", "default", "configmap-demo").getAsJsonObject("data")
+				.get("index.html").getAsString()).contains("SpringOne Tour");
+	}
+
+	@Test
+	void whatMatchesTheCacheIsNotWritten() {
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler(), "demo");
+
+		this.server.clearCalls();
+		reconcile(reconciler(), "demo"); // a fresh one, which has no versions to go by yet
+		assertThat(this.server.calls()).isEmpty();
+	}
+
+	@Test
+	void driftIsReplacedAtTheCachedResourceVersion() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		this.configMapsApi.patch("default", "configmap-demo", V1Patch.PATCH_FORMAT_JSON_MERGE_PATCH,
+				new V1Patch("{\"data\":{\"index.html\":\"tampered with\"}}")).throwsApiException();
+		sync();
+		var cached = this.configMaps.getIndexer().getByKey("default/configmap-demo").getMetadata()
+				.getResourceVersion();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("configmaps")).singleElement().satisfies(call -> {
+			assertThat(call.verb()).isEqualTo("update");
+			assertThat(call.json().getAsJsonObject("metadata").get("resourceVersion").getAsString())
+					.isEqualTo(cached);
+		});
+		assertThat(calls("deployments")).isEmpty();
+	}
+
+	@Test
+	void aConflictOnCreateFallsBackToAReplace() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		// the objects exist, but the caches haven't seen them yet
+		this.configMaps.getIndexer().replace(List.of(), "");
+		this.deployments.getIndexer().replace(List.of(), "");
+
+		this.server.clearCalls();
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isFalse();
+		for (var resource : List.of("configmaps", "deployments")) {
+			var writes = calls(resource);
+			assertThat(writes).extracting(FakeKubernetesApiServer.Call::verb).containsExactly("create", "update");
+			// there's no version to go by, so nothing for the replace to conflict on
+			assertThat(writes.get(1).json().getAsJsonObject("metadata").has("resourceVersion")).isFalse();
+		}
+	}
+
+	@Test
+	void immutableConfigMapsAreNamedAfterTheirContent() {
+		this.properties.getConfigMaps().setImmutable(true);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		var first = currentConfigMap("demo");
+		assertThat(first).startsWith("configmap-demo-").hasSize("configmap-demo-".length() + 10);
+		assertThat(this.server.get("configmaps", "default", first).get("immutable").getAsBoolean()).isTrue();
+		assertThat(volumeOf("deployment-demo")).isEqualTo(first);
+
+		respec("demo", "SpringOne Tour, again");
+		reconcile(reconciler, "demo");
+		var second = currentConfigMap("demo");
+		assertThat(second).isNotEqualTo(first);
+		assertThat(volumeOf("deployment-demo")).isEqualTo(second);
+		assertThat(configMapNames()).containsExactlyInAnyOrder(first, second); // well within keep
+	}
+
+	@Test
+	void theNewestOldConfigMapsAreKept() {
+		this.properties.getConfigMaps().setImmutable(true); // and keep=3 by default
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		var now = OffsetDateTime.now();
+		olderConfigMaps("demo", "configmap-demo-3", "configmap-demo-2", "configmap-demo-1");
+		createdAt("configmap-demo-3", now.minusDays(3));
+		createdAt("configmap-demo-2", now.minusDays(2));
+		createdAt("configmap-demo-1", now.minusDays(1));
+
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isFalse();
+		assertThat(configMapNames()).containsExactlyInAnyOrder(currentConfigMap("demo"), "configmap-demo-1",
+				"configmap-demo-2");
+	}
+
+	@Test
+	void keepingOneKeepsJustTheCurrentConfigMap() {
+		this.properties.getConfigMaps().setImmutable(true);
+		this.properties.getConfigMaps().setKeep(1);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		var now = OffsetDateTime.now();
+		olderConfigMaps("demo", "configmap-demo-2", "configmap-demo-1");
+		createdAt("configmap-demo-2", now.minusDays(2));
+		createdAt("configmap-demo-1", now.minusDays(1));
+		// and one the cache still has, though someone else already deleted it
+		var gone = new V1ConfigMap().metadata(FooReconciler
+				.own(new V1ObjectMeta().namespace("default").name("configmap-demo-0"), cachedFoo("demo"))
+				.creationTimestamp(now.minusDays(3)));
+		this.configMaps.getIndexer().add(gone);
+
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isFalse();
+		assertThat(configMapNames()).containsExactly(currentConfigMap("demo"));
+		assertThat(calls("configmaps")).filteredOn(call -> call.verb().equals("delete")).hasSize(3);
+	}
+
+	@Test
+	void aConfigMapOfUnknownAgeCountsAsTheNewest() {
+		this.properties.getConfigMaps().setImmutable(true);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		var now = OffsetDateTime.now();
+		olderConfigMaps("demo", "configmap-demo-2", "configmap-demo-1", "configmap-demo-unknown");
+		createdAt("configmap-demo-2", now.minusDays(2));
+		createdAt("configmap-demo-1", now.minusDays(1));
+		createdAt("configmap-demo-unknown", null);
+
+		assertThat(reconciler.reconcile(new Request("default", "demo")).isRequeue()).isFalse();
+		assertThat(configMapNames()).containsExactlyInAnyOrder(currentConfigMap("demo"), "configmap-demo-unknown",
+				"configmap-demo-1");
+	}
+
+	@Test
+	void independentWritesOverlap() {
+		this.server.latency(Duration.ofMillis(200));
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+
+		reconcile(reconciler, "demo"); // nothing to roll yet
+		var configMap = calls("configmaps").get(0);
+		var deployment = calls("deployments").get(0);
+		assertThat(configMap.received()).isLessThan(deployment.answered());
+		assertThat(deployment.received()).isLessThan(configMap.answered());
+	}
+
+	@Test
+	void newContentIsWrittenBeforeThePodsRollForIt() {
+		this.server.latency(Duration.ofMillis(200));
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		respec("demo", "SpringOne Tour, again");
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		var configMap = calls("configmaps").get(0);
+		var deployment = calls("deployments").get(0);
+		assertThat(configMap.answered()).isLessThan(deployment.received());
+	}
+
+	@Test
+	void sequentialWritesGoOneAfterTheOther() {
+		this.properties.getWorkers().setParallelWrites(false);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+
+		reconcile(reconciler, "demo");
+		var calls = this.server.calls();
+		assertThat(calls).extracting(FooReconcilerTests::resourceOf).containsExactly("configmaps", "deployments",
+				"foos");
+		for (var i = 1; i < calls.size(); i++) {
+			assertThat(calls.get(i - 1).answered()).isLessThan(calls.get(i).received());
+		}
+	}
+
+	@Test
+	void applyIsOneRequestPerObjectCarryingOnlyWhatWeOwn() {
+		this.properties.setWriteMode(FooControllerProperties.WriteMode.APPLY);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		respec("demo", "SpringOne Tour 2024");
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		for (var resource : List.of("configmaps", "deployments")) {
+			var writes = calls(resource);
+			assertThat(writes).singleElement().satisfies(call -> {
+				assertThat(call.verb()).isEqualTo("patch");
+				assertThat(call.contentType()).startsWith(V1Patch.PATCH_FORMAT_APPLY_YAML);
+				assertThat(call.query()).containsEntry("fieldManager", "foo-controller").containsEntry("force", "true");
+				assertThat(call.json().getAsJsonObject("metadata").has("resourceVersion")).isFalse();
+			});
+		}
+		var appliedDeployment = calls("deployments").get(0).json().getAsJsonObject("spec");
+		assertThat(appliedDeployment.has("replicas")).isFalse();
+		assertThat(appliedDeployment.has("template")).isTrue();
+	}
+
+	@Test
+	void aNewDeploymentStartsWithTheTemplateReplicaCountAndIsThenLeftToScale() {
+		this.properties.setWriteMode(FooControllerProperties.WriteMode.APPLY);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		// applied, the count would be ours, and the next apply would reset it to the default of 1
+		assertThat(calls("deployments")).singleElement().satisfies(call -> {
+			assertThat(call.verb()).isEqualTo("create");
+			assertThat(call.query()).containsEntry("fieldManager", "foo-controller");
+			assertThat(call.json().getAsJsonObject("spec").get("replicas").getAsInt()).isEqualTo(2);
+		});
+		assertThat(calls("configmaps")).extracting(FakeKubernetesApiServer.Call::verb).containsExactly("patch");
+		assertThat(replicas("deployment-demo")).isEqualTo(2);
+
+		scale("deployment-demo", 5);
+		respec("demo", "SpringOne Tour 2024");
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("deployments")).singleElement().satisfies(call -> {
+			assertThat(call.verb()).isEqualTo("patch");
+			assertThat(call.json().getAsJsonObject("spec").has("replicas")).isFalse();
+		});
+		assertThat(replicas("deployment-demo")).isEqualTo(5);
+	}
+
+	@Test
+	void scalingTheDeploymentIsNotDrift() {
+		this.properties.setWriteMode(FooControllerProperties.WriteMode.APPLY);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		scale("deployment-demo", 5);
+		sync();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(this.server.calls()).isEmpty();
+		assertThat(replicas("deployment-demo")).isEqualTo(5);
+	}
+
+	@Test
+	void aReplaceKeepsTheLiveReplicaCount() {
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		assertThat(replicas("deployment-demo")).isEqualTo(2); // from the template
+		scale("deployment-demo", 5);
+		this.deploymentsApi.patch("default", "deployment-demo", V1Patch.PATCH_FORMAT_JSON_MERGE_PATCH,
+				new V1Patch("{\"metadata\":{\"labels\":{\"app.kubernetes.io/managed-by\":\"someone-else\"}}}"))
+				.throwsApiException();
+		sync();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("deployments")).singleElement().satisfies(call -> {
+			assertThat(call.verb()).isEqualTo("update");
+			assertThat(call.json().getAsJsonObject("spec").get("replicas").getAsInt()).isEqualTo(5);
+		});
+		assertThat(replicas("deployment-demo")).isEqualTo(5);
+	}
+
+	@Test
+	void ownedReplicasAreAppliedAndEnforced() {
+		this.properties.setWriteMode(FooControllerProperties.WriteMode.APPLY);
+		this.properties.setOwnReplicas(true);
+		var reconciler = reconciler();
+		foo("demo", "SpringOne Tour");
+		reconcile(reconciler, "demo");
+		assertThat(calls("deployments").get(0).json().getAsJsonObject("spec").get("replicas").getAsInt())
+				.isEqualTo(2);
+		scale("deployment-demo", 5);
+		sync();
+
+		this.server.clearCalls();
+		reconcile(reconciler, "demo");
+		assertThat(calls("deployments")).hasSize(1);
+		assertThat(replicas("deployment-demo")).isEqualTo(2);
+	}
+
+	private FooReconciler reconciler() {
+		var templateCache = new TemplateCache(this.apiClient.getJSON()) //
+				.register(V1ConfigMap.class, new ClassPathResource("configmap.yaml")) //
+				.register(V1Deployment.class, new ClassPathResource("deployment.yaml"));
+		return new FooReconciler(templateCache, this.foos, this.configMaps, this.deployments,
+				new AppsV1Api(this.apiClient), new CoreV1Api(this.apiClient), this.foosApi, this.configMapsApi,
+				this.deploymentsApi, this.apiClient.getJSON(), this.properties,
+				new ReconcileMetrics(new SimpleMeterRegistry()));
+	}
+
+	/**
+	 * reconciles, fails on anything that would have been retried, and then lets the
+	 * caches catch up with what was written.
+	 */
+	private void reconcile(FooReconciler reconciler, String name) {
+		assertThat(reconciler.reconcile(new Request("default", name)).isRequeue()).isFalse();
+		sync();
+	}
+
+	private void foo(String name, String spec) {
+		var foo = new V1Foo().apiVersion("spring.io/v1").kind("Foo")
+				.metadata(new V1ObjectMeta().namespace("default").name(name)).spec(new V1FooSpec().name(spec));
+		this.server.create("foos", this.apiClient.getJSON().getGson().toJsonTree(foo).getAsJsonObject());
+		sync();
+	}
+
+	private void respec(String name, String spec) {
+		var foo = this.foosApi.get("default", name).throwsApiException().getObject();
+		foo.getSpec().setName(spec);
+		this.foosApi.update(foo).throwsApiException();
+		sync();
+	}
+
+	private V1Foo cachedFoo(String name) {
+		return this.foos.getIndexer().getByKey("default/" + name);
+	}
+
+	private String currentConfigMap(String fooName) {
+		var contentHash = this.server.get("foos", "default", fooName).getAsJsonObject("status").get("contentHash")
+				.getAsString();
+		return "configmap-" + fooName + '-' + contentHash.substring(0, 10);
+	}
+
+	/**
+	 * immutable {@code ConfigMap}s the Foo owns besides its current one, on the server and
+	 * in the cache.
+	 */
+	private void olderConfigMaps(String fooName, String... names) {
+		for (var name : names) {
+			var configMap = new V1ConfigMap().apiVersion("v1").kind("ConfigMap").immutable(true)
+					.metadata(FooReconciler.own(new V1ObjectMeta().namespace("default").name(name),
+							cachedFoo(fooName)))
+					.putDataItem("index.html", "<h1> Hello, " + name + " </h1>");
+			this.server.create("configmaps",
+					this.apiClient.getJSON().getGson().toJsonTree(configMap).getAsJsonObject());
+		}
+		sync();
+	}
+
+	// the fake server's timestamps are all "now", to the second
+	private void createdAt(String configMapName, OffsetDateTime creationTimestamp) {
+		this.configMaps.getIndexer().getByKey("default/" + configMapName).getMetadata()
+				.setCreationTimestamp(creationTimestamp);
+	}
+
+	private List<String> configMapNames() {
+		return this.server.list("configmaps").stream()
+				.map(configMap -> configMap.getAsJsonObject("metadata").get("name").getAsString()).toList();
+	}
+
+	private String volumeOf(String deploymentName) {
+		return this.server.get("deployments", "default", deploymentName).getAsJsonObject("spec")
+				.getAsJsonObject("template").getAsJsonObject("spec").getAsJsonArray("volumes").get(0)
+				.getAsJsonObject().getAsJsonObject("configMap").get("name").getAsString();
+	}
+
+	private void scale(String deploymentName, int replicas) {
+		this.deploymentsApi.patch("default", deploymentName, V1Patch.PATCH_FORMAT_JSON_MERGE_PATCH,
+				new V1Patch("{\"spec\":{\"replicas\":" + replicas + "}}")).throwsApiException();
+	}
+
+	private int replicas(String deploymentName) {
+		return this.server.get("deployments", "default", deploymentName).getAsJsonObject("spec").get("replicas")
+				.getAsInt();
+	}
+
+	private List<FakeKubernetesApiServer.Call> calls(String resource) {
+		return this.server.calls().stream().filter(call -> resource.equals(resourceOf(call))).toList();
+	}
+
+	private static String resourceOf(FakeKubernetesApiServer.Call call) {
+		var segments = call.path().split("/");
+		for (var i = 0; i < segments.length - 2; i++) {
+			if ("namespaces".equals(segments[i])) {
+				return segments[i + 2];
+			}
+		}
+		return null;
+	}
+
+	private void sync() {
+		sync("foos", V1Foo.class, this.foos);
+		sync("configmaps", V1ConfigMap.class, this.configMaps);
+		sync("deployments", V1Deployment.class, this.deployments);
+	}
+
+	private <T extends KubernetesObject> void sync(String resource, Class<T> type, SharedIndexInformer<T> informer) {
+		var gson = this.apiClient.getJSON().getGson();
+		informer.getIndexer().replace(this.server.list(resource).stream().map(object -> gson.fromJson(object, type))
+				.toList(), "");
+	}
+
+	/**
+	 * an informer that is never started: its indexer is just a cache we fill ourselves.
+	 */
+	private static <T extends KubernetesObject> SharedIndexInformer<T> informer(Class<T> type) {
+		return new DefaultSharedIndexInformer<>(type, new ListerWatcher<T, KubernetesListObject>() {
+
+			@Override
+			public KubernetesListObject list(CallGeneratorParams params) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public Watchable<T> watch(CallGeneratorParams params) {
+				throw new UnsupportedOperationException();
+			}
+
+		}, 0);
+	}
+
+	private static V1Deployment deployment(String resourceVersion, long generation) {
+		return new V1Deployment()
+				.metadata(new V1ObjectMeta().name("deployment-demo").resourceVersion(resourceVersion)
+						.generation(generation))
+				.spec(new V1DeploymentSpec().replicas(2));
+	}
+
+}
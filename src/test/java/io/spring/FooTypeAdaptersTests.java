@@ -0,0 +1,77 @@
+package io.spring;
+
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.Watch;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import io.spring.models.V1FooSpec;
+import io.spring.models.V1FooStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FooTypeAdaptersTests {
+
+	private final JSON reflective = new JSON();
+
+	private final JSON streaming = FooTypeAdapters.register(new JSON());
+
+	@Test
+	void writesExactlyWhatTheReflectiveAdaptersWrite() {
+		var foo = foo("demo");
+		assertThat(this.streaming.serialize(foo)).isEqualTo(this.reflective.serialize(foo));
+		var sparse = new V1Foo().metadata(new V1ObjectMeta().name("sparse")).status(new V1FooStatus());
+		assertThat(this.streaming.serialize(sparse)).isEqualTo(this.reflective.serialize(sparse));
+		var list = new V1FooList().apiVersion("spring.io/v1").kind("FooList")
+				.metadata(new V1ListMeta().resourceVersion("42")).items(List.of(foo("a"), foo("b")));
+		assertThat(this.streaming.serialize(list)).isEqualTo(this.reflective.serialize(list));
+		var empty = new V1FooList();
+		assertThat(this.streaming.serialize(empty)).isEqualTo(this.reflective.serialize(empty));
+	}
+
+	@Test
+	void readsBackWhatItWrote() {
+		var list = new V1FooList().apiVersion("spring.io/v1").kind("FooList")
+				.metadata(new V1ListMeta().resourceVersion("42")).items(List.of(foo("a"), foo("b")));
+		assertThat((V1FooList) this.streaming.deserialize(this.streaming.serialize(list), V1FooList.class))
+				.isEqualTo(list);
+		assertThat((V1Foo) this.streaming.deserialize("null", V1Foo.class)).isNull();
+	}
+
+	@Test
+	void skipsFieldsItDoesntKnow() {
+		var json = """
+				{"apiVersion":"spring.io/v1","kind":"Foo","extra":{"nested":[1,2,{"x":null}]},
+				 "metadata":{"name":"demo","namespace":"default"},
+				 "spec":{"name":"demo","replicas":3},
+				 "status":{"observedGeneration":"7","contentHash":"abc","conditions":[]}}
+				""";
+		V1Foo foo = this.streaming.deserialize(json, V1Foo.class);
+		assertThat(foo).isEqualTo(this.reflective.deserialize(json, V1Foo.class));
+		assertThat(foo.getStatus().getObservedGeneration()).isEqualTo(7L);
+		assertThat(foo.getSpec().getName()).isEqualTo("demo");
+	}
+
+	@Test
+	void watchEventsDecodeThroughThem() {
+		var line = "{\"type\":\"MODIFIED\",\"object\":" + this.streaming.serialize(foo("demo")) + "}";
+		Watch.Response<V1Foo> event = this.streaming.deserialize(line,
+				new TypeToken<Watch.Response<V1Foo>>() {
+				}.getType());
+		assertThat(event.type).isEqualTo("MODIFIED");
+		assertThat(event.object).isEqualTo(foo("demo"));
+	}
+
+	private static V1Foo foo(String name) {
+		return new V1Foo().apiVersion("spring.io/v1").kind("Foo")
+				.metadata(new V1ObjectMeta().namespace("default").name(name).resourceVersion("1").generation(2L))
+				.spec(new V1FooSpec().name(name))
+				.status(new V1FooStatus().name(name).observedGeneration(2L).contentHash("0123456789abcdef"));
+	}
+
+}
@@ -0,0 +1,250 @@
+package io.spring;
+
+import com.google.gson.JsonObject;
+import io.kubernetes.client.informer.ListerWatcher;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.util.CallGeneratorParams;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.util.Watchable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.spring.models.V1Foo;
+import io.spring.models.V1FooList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InformerSnapshotsTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final ApiClient apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+
+	@TempDir
+	Path directory;
+
+	InformerSnapshotsTests() throws IOException {
+		for (var i = 0; i < 5; i++) {
+			this.server.create("foos", foo("foo-" + i));
+		}
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void aRestartStartsFromTheSnapshotAndOnlyCatchesUpOnWhatChanged() throws Exception {
+		snapshotAndStop(new FooControllerProperties.Scope());
+		var lists = this.server.requestCounts().get("list");
+		this.server.create("foos", foo("foo-5"));
+
+		var factory = new SharedInformerFactory(this.apiClient);
+		var informer = informer(factory, snapshots(), new FooControllerProperties.Scope());
+		factory.startAllRegisteredInformers();
+		try {
+			eventually(() -> informer.getIndexer().list().size() == 6);
+			assertThat(this.server.requestCounts()).containsEntry("list", lists);
+		}
+		finally {
+			factory.stopAllRegisteredInformers();
+		}
+	}
+
+	@Test
+	void aSnapshotTakenForAnotherScopeIsIgnored() throws Exception {
+		snapshotAndStop(new FooControllerProperties.Scope());
+		var lists = this.server.requestCounts().get("list");
+
+		var scope = new FooControllerProperties.Scope();
+		scope.setLabelSelector("tenant=blue");
+		var factory = new SharedInformerFactory(this.apiClient);
+		var informer = informer(factory, snapshots(), scope);
+		factory.startAllRegisteredInformers();
+		try {
+			eventually(informer::hasSynced);
+			assertThat(informer.getIndexer().list()).isEmpty();
+			assertThat(this.server.requestCounts()).containsEntry("list", lists + 1);
+		}
+		finally {
+			factory.stopAllRegisteredInformers();
+		}
+	}
+
+	@Test
+	void aQuietNamespaceHoldsTheSnapshotBackToWhereItsWatchGotTo() throws Exception {
+		var scope = new FooControllerProperties.Scope();
+		scope.setNamespaces(List.of("default", "quiet"));
+		var factory = new SharedInformerFactory(this.apiClient);
+		var snapshots = snapshots();
+		var listerWatcher = new LaggingListerWatcher(listerWatcher(scope), "quiet");
+		var informer = snapshots.informerFor(factory, "foos", listerWatcher, V1Foo.class,
+				(items, metadata) -> new V1FooList().items(items).metadata(metadata), scope.toString(),
+				scope.getNamespaces());
+		factory.startAllRegisteredInformers();
+		eventually(() -> informer.getIndexer().list().size() == 5);
+
+		// the quiet namespace's watch falls behind just as something happens there for once
+		listerWatcher.lagging = true;
+		this.server.create("foos", foo("quiet", "late"));
+		this.server.create("foos", foo("default", "foo-5"));
+		eventually(() -> informer.getIndexer().list().size() == 6);
+		eventually(() -> {
+			snapshots.save();
+			return Files.exists(this.directory.resolve("foos.snapshot"));
+		});
+		factory.stopAllRegisteredInformers();
+		var lists = this.server.requestCounts().get("list");
+
+		var restarted = new SharedInformerFactory(this.apiClient);
+		var restartedInformer = informer(restarted, snapshots(), scope);
+		restarted.startAllRegisteredInformers();
+		try {
+			this.server.create("foos", foo("quiet", "later"));
+			eventually(() -> restartedInformer.getIndexer().getByKey("quiet/later") != null);
+			eventually(() -> restartedInformer.getIndexer().getByKey("quiet/late") != null);
+			assertThat(restartedInformer.getIndexer().list()).hasSize(8);
+			assertThat(this.server.requestCounts()).containsEntry("list", lists);
+		}
+		finally {
+			restarted.stopAllRegisteredInformers();
+		}
+	}
+
+	private void snapshotAndStop(FooControllerProperties.Scope scope) throws InterruptedException {
+		var factory = new SharedInformerFactory(this.apiClient);
+		var snapshots = snapshots();
+		var informer = informer(factory, snapshots, scope);
+		factory.startAllRegisteredInformers();
+		eventually(() -> informer.getIndexer().list().size() == 5);
+		// the event handler hears about the objects a little after the cache has them
+		eventually(() -> {
+			snapshots.save();
+			return Files.exists(this.directory.resolve("foos.snapshot"));
+		});
+		factory.stopAllRegisteredInformers();
+	}
+
+	private SharedIndexInformer<V1Foo> informer(SharedInformerFactory factory, InformerSnapshots snapshots,
+			FooControllerProperties.Scope scope) {
+		return snapshots.informerFor(factory, "foos", listerWatcher(scope), V1Foo.class,
+				(items, metadata) -> new V1FooList().items(items).metadata(metadata), scope.toString(),
+				scope.getNamespaces().size() > 1 ? scope.getNamespaces() : List.of());
+	}
+
+	private InformerSnapshots snapshots() {
+		var properties = new FooControllerProperties.Snapshot();
+		properties.setDirectory(this.directory.toString());
+		return new InformerSnapshots(properties, this.apiClient.getJSON(), new SimpleMeterRegistry());
+	}
+
+	private CustomResourceListerWatcher<V1Foo, V1FooList> listerWatcher(FooControllerProperties.Scope scope) {
+		return new CustomResourceListerWatcher<>(this.apiClient, V1Foo.class, V1FooList.class, "spring.io", "v1",
+				"foos", scope, 0);
+	}
+
+	private static void eventually(BooleanSupplier condition) throws InterruptedException {
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("waited too long").isLessThan(deadline);
+			Thread.sleep(50);
+		}
+	}
+
+	private static JsonObject foo(String name) {
+		return foo("default", name);
+	}
+
+	private static JsonObject foo(String namespace, String name) {
+		var metadata = new JsonObject();
+		metadata.addProperty("namespace", namespace);
+		metadata.addProperty("name", name);
+		var foo = new JsonObject();
+		foo.addProperty("apiVersion", "spring.io/v1");
+		foo.addProperty("kind", "Foo");
+		foo.add("metadata", metadata);
+		return foo;
+	}
+
+	/**
+	 * once {@link #lagging}, drops everything the watch on one namespace has to say, as if
+	 * that watch were yet to get there.
+	 */
+	private static final class LaggingListerWatcher implements ListerWatcher<V1Foo, V1FooList> {
+
+		private final ListerWatcher<V1Foo, V1FooList> delegate;
+
+		private final String namespace;
+
+		volatile boolean lagging;
+
+		LaggingListerWatcher(ListerWatcher<V1Foo, V1FooList> delegate, String namespace) {
+			this.delegate = delegate;
+			this.namespace = namespace;
+		}
+
+		@Override
+		public V1FooList list(CallGeneratorParams params) throws ApiException {
+			return this.delegate.list(params);
+		}
+
+		@Override
+		public Watchable<V1Foo> watch(CallGeneratorParams params) throws ApiException {
+			var watch = this.delegate.watch(params);
+			return new Watchable<>() {
+
+				private Watch.Response<V1Foo> next;
+
+				@Override
+				public boolean hasNext() {
+					while (this.next == null && watch.hasNext()) {
+						var response = watch.next();
+						if (!lagging || response.object == null
+								|| !namespace.equals(response.object.getMetadata().getNamespace())) {
+							this.next = response;
+						}
+					}
+					return this.next != null;
+				}
+
+				@Override
+				public Watch.Response<V1Foo> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					var response = this.next;
+					this.next = null;
+					return response;
+				}
+
+				@Override
+				public Iterator<Watch.Response<V1Foo>> iterator() {
+					return this;
+				}
+
+				@Override
+				public void close() throws IOException {
+					watch.close();
+				}
+
+			};
+		}
+
+	}
+
+}
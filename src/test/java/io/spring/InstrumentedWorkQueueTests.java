@@ -0,0 +1,86 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstrumentedWorkQueueTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final InstrumentedWorkQueue<Request> queue = new InstrumentedWorkQueue<>(
+			new LanedWorkQueue<>(Request::getNamespace),
+			new JitteredExponentialRateLimiter<>(Duration.ofMillis(5), Duration.ofMinutes(5), 0.2),
+			this.meterRegistry);
+
+	@AfterEach
+	void shutDown() {
+		this.queue.shutDown();
+	}
+
+	@Test
+	void theDepthIsWhatIsWaitingInEachLane() throws Exception {
+		this.queue.add(new Request("default", "changed"));
+		this.queue.lane(LanedWorkQueue.Lane.RESYNC).add(new Request("default", "resynced"));
+		this.queue.lane(LanedWorkQueue.Lane.RESYNC).add(new Request("default", "resynced-too"));
+		assertThat(depth()).isEqualTo(3);
+		assertThat(laneDepth("change")).isEqualTo(1);
+		assertThat(laneDepth("drift")).isZero();
+		assertThat(laneDepth("resync")).isEqualTo(2);
+
+		this.queue.done(this.queue.get());
+		assertThat(depth()).isEqualTo(2);
+		assertThat(laneDepth("change")).isZero();
+	}
+
+	@Test
+	void theLatencyRunsFromTheFirstAddUntilAWorkerTakesIt() throws Exception {
+		var request = new Request("default", "demo");
+		this.queue.add(request);
+		Thread.sleep(100);
+		this.queue.add(request); // still the one item, still waiting since the first add
+		assertThat(this.queue.get()).isEqualTo(request);
+
+		var latency = this.meterRegistry.get("foo.workqueue.latency").timer();
+		assertThat(latency.count()).isEqualTo(1);
+		assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(100);
+	}
+
+	@Test
+	void aDelayedItemIsOnlyWaitingOnceItIsReady() throws Exception {
+		this.queue.addAfter(new Request("default", "demo"), Duration.ofMillis(300));
+		this.queue.get();
+
+		var latency = this.meterRegistry.get("foo.workqueue.latency").timer();
+		assertThat(latency.count()).isEqualTo(1);
+		assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isLessThan(300);
+	}
+
+	@Test
+	void rateLimitedItemsAreCountedAsRetries() throws Exception {
+		var request = new Request("default", "demo");
+		this.queue.addRateLimited(request);
+		this.queue.addRateLimited(request);
+		assertThat(this.meterRegistry.get("foo.workqueue.retries").counter().count()).isEqualTo(2);
+		assertThat(this.queue.numRequeues(request)).isEqualTo(2);
+
+		this.queue.forget(request);
+		assertThat(this.queue.numRequeues(request)).isZero();
+		assertThat(this.meterRegistry.get("foo.workqueue.retries").counter().count()).isEqualTo(2);
+	}
+
+	private double depth() {
+		return this.meterRegistry.get("foo.workqueue.depth").gauge().value();
+	}
+
+	private double laneDepth(String lane) {
+		return this.meterRegistry.get("foo.workqueue.lane.depth").tag("lane", lane).gauge().value();
+	}
+
+}
@@ -0,0 +1,101 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LanedWorkQueueTests {
+
+	private final LanedWorkQueue<Request> queue = new LanedWorkQueue<>(Request::getNamespace);
+
+	@AfterEach
+	void shutDown() {
+		this.queue.shutDown();
+	}
+
+	@Test
+	void changesGoBeforeDriftAndDriftBeforeResyncs() throws Exception {
+		this.queue.lane(LanedWorkQueue.Lane.RESYNC).add(new Request("default", "resynced"));
+		this.queue.lane(LanedWorkQueue.Lane.DRIFT).add(new Request("default", "drifted"));
+		this.queue.add(new Request("default", "changed"));
+		assertThat(names(3)).containsExactly("changed", "drifted", "resynced");
+	}
+
+	@Test
+	void anItemWaitsOnlyOnceInTheMoreUrgentLane() throws Exception {
+		var resync = this.queue.lane(LanedWorkQueue.Lane.RESYNC);
+		for (var i = 0; i < 3; i++) {
+			resync.add(new Request("default", "foo-" + i));
+		}
+		this.queue.add(new Request("default", "foo-2"));
+		resync.add(new Request("default", "foo-2"));
+		assertThat(this.queue.length()).isEqualTo(3);
+		assertThat(this.queue.length(LanedWorkQueue.Lane.CHANGE)).isEqualTo(1);
+		assertThat(names(3)).containsExactly("foo-2", "foo-0", "foo-1");
+		assertThat(this.queue.length()).isZero();
+	}
+
+	@Test
+	void namespacesTakeTurns() throws Exception {
+		for (var i = 0; i < 100; i++) {
+			this.queue.add(new Request("big", "foo-" + i));
+		}
+		this.queue.add(new Request("small", "foo-0"));
+		this.queue.add(new Request("small", "foo-1"));
+		var namespaces = new ArrayList<String>();
+		for (var i = 0; i < 4; i++) {
+			var request = this.queue.get();
+			namespaces.add(request.getNamespace());
+			this.queue.done(request);
+		}
+		assertThat(namespaces).containsExactly("big", "small", "big", "small");
+	}
+
+	@Test
+	void anItemAddedWhileBeingWorkedOnComesBackWhenTheWorkerIsDone() throws Exception {
+		var request = new Request("default", "demo");
+		this.queue.lane(LanedWorkQueue.Lane.RESYNC).add(request);
+		assertThat(this.queue.get()).isEqualTo(request);
+		this.queue.add(request);
+		assertThat(this.queue.length()).isZero();
+		this.queue.done(request);
+		assertThat(this.queue.length(LanedWorkQueue.Lane.CHANGE)).isEqualTo(1);
+		assertThat(this.queue.get()).isEqualTo(request);
+	}
+
+	@Test
+	void aDelayedItemKeepsItsEarliestDeadline() throws Exception {
+		var request = new Request("default", "demo");
+		this.queue.addAfter(request, Duration.ofMinutes(10));
+		this.queue.addAfter(request, Duration.ofMillis(50));
+		this.queue.addAfter(request, Duration.ofMinutes(5));
+		var start = System.nanoTime();
+		assertThat(this.queue.get()).isEqualTo(request);
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void aShutDownQueueHandsOutNothingMore() throws Exception {
+		this.queue.shutDown();
+		this.queue.add(new Request("default", "demo"));
+		assertThat(this.queue.get()).isNull();
+		assertThat(this.queue.isShuttingDown()).isTrue();
+	}
+
+	private List<String> names(int count) throws InterruptedException {
+		var names = new ArrayList<String>();
+		for (var i = 0; i < count; i++) {
+			var request = this.queue.get();
+			names.add(request.getName());
+			this.queue.done(request);
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,111 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.ClientBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderElectionTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final ApiClient apiClient = new ClientBuilder().setBasePath(this.server.url()).build();
+
+	LeaderElectionTests() throws IOException {
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void withoutLeaderElectionEveryReplicaLeads() {
+		var properties = new FooControllerProperties.LeaderElection();
+		var leaderElection = new LeaderElection(properties, this.apiClient, new SimpleMeterRegistry());
+		var led = new boolean[1];
+		leaderElection.run(() -> led[0] = true, () -> {
+		});
+		assertThat(led[0]).isTrue();
+		assertThat(leaderElection.isLeader()).isTrue();
+		assertThat(this.server.requestCounts()).isEmpty();
+	}
+
+	@Test
+	void theStandbyTakesOverOnceTheLeaderCannotRenew() throws Exception {
+		var meterRegistry = new SimpleMeterRegistry();
+		var first = new LeaderElection(properties("first"), this.apiClient, meterRegistry);
+		var second = new LeaderElection(properties("second"), this.apiClient, new SimpleMeterRegistry());
+		var firstLeads = new CountDownLatch(1);
+		var firstStepsDown = new CountDownLatch(1);
+		var secondLeads = new CountDownLatch(1);
+		run(first, firstLeads, firstStepsDown);
+		assertThat(firstLeads.await(10, TimeUnit.SECONDS)).isTrue();
+		run(second, secondLeads, new CountDownLatch(1));
+
+		// the first one keeps renewing, so the second one waits
+		assertThat(secondLeads.await(3, TimeUnit.SECONDS)).isFalse();
+
+		// until the API server stops talking to anyone for longer than the renew deadline
+		this.server.errors(1, 500);
+		assertThat(firstStepsDown.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(first.isLeader()).isFalse();
+		this.server.errors(0, 500);
+		assertThat(secondLeads.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(second.isLeader()).isTrue();
+		assertThat(meterRegistry.get("foo.leader.transitions").tag("transition", "started").counter().count())
+				.isEqualTo(1);
+		assertThat(meterRegistry.get("foo.leader.transitions").tag("transition", "stopped").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void inAPodTheIdentityIsThePodNameAndSurvivesARestart() {
+		var environment = Map.of("KUBERNETES_SERVICE_HOST", "10.96.0.1", "HOSTNAME", "foo-controller-7d9f-abcde");
+		assertThat(LeaderElection.defaultIdentity(environment)).isEqualTo("foo-controller-7d9f-abcde")
+				.isEqualTo(LeaderElection.defaultIdentity(environment));
+		assertThat(LeaderElection.defaultIdentity(Map.of("KUBERNETES_SERVICE_HOST", "10.96.0.1", "POD_NAME",
+				"foo-controller-0", "HOSTNAME", "somewhere-else")))
+				.isEqualTo("foo-controller-0");
+	}
+
+	@Test
+	void elsewhereTwoReplicasOnOneHostGetDifferentIdentities() {
+		assertThat(LeaderElection.defaultIdentity(Map.of())).isNotEqualTo(LeaderElection.defaultIdentity(Map.of()));
+	}
+
+	private static FooControllerProperties.LeaderElection properties(String identity) {
+		var properties = new FooControllerProperties.LeaderElection();
+		properties.setEnabled(true);
+		properties.setIdentity(identity);
+		properties.setLeaseDuration(Duration.ofSeconds(2));
+		properties.setRenewDeadline(Duration.ofSeconds(1));
+		properties.setRetryPeriod(Duration.ofMillis(200));
+		return properties;
+	}
+
+	// leading means blocking, like controller.run() does
+	private static void run(LeaderElection leaderElection, CountDownLatch leads, CountDownLatch stepsDown) {
+		var thread = new Thread(() -> leaderElection.run(() -> {
+			leads.countDown();
+			try {
+				stepsDown.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, stepsDown::countDown));
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+}
@@ -0,0 +1,101 @@
+package io.spring;
+
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * runs the whole application against a {@link FakeKubernetesApiServer}, creates
+ * {@code load.foos} Foos spread over ten namespaces in one burst, and waits until every
+ * one of them has its {@code Deployment} and a status for its current generation. the
+ * throughput, the time to converge and the heap in use afterwards are logged. the fake
+ * server lives in the same JVM, so the heap figure includes its copy of every object too.
+ * <p>
+ * not part of {@code ./gradlew test}; run it with {@code ./gradlew loadTest -Pfoos=10000}.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(properties = "bootiful.controller.metrics.port=0")
+class LoadTests {
+
+	private static final FakeKubernetesApiServer api = start();
+
+	@DynamicPropertySource
+	static void api(DynamicPropertyRegistry registry) {
+		registry.add("bootiful.controller.api.base-path", api::url);
+	}
+
+	@AfterAll
+	static void stop() {
+		api.close();
+	}
+
+	@Test
+	void everyFooConverges() throws Exception {
+		var foos = Integer.getInteger("load.foos", 1000);
+		var deadline = System.nanoTime() + Duration.parse(System.getProperty("load.timeout", "PT30M")).toNanos();
+		var start = System.nanoTime();
+		for (var i = 0; i < foos; i++) {
+			api.create("foos", foo("load-" + (i % 10), "foo-" + i));
+		}
+		long converged;
+		while ((converged = converged()) < foos) {
+			assertThat(System.nanoTime()).as(converged + " of " + foos + " Foos converged").isLessThan(deadline);
+			Thread.sleep(1000);
+		}
+		var elapsed = Duration.ofNanos(System.nanoTime() - start);
+		System.gc();
+		var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		log.info(foos + " Foos converged in " + elapsed.toMillis() + "ms (" + (foos * 1000L / Math.max(1, elapsed
+				.toMillis())) + " Foos/s), " + (heap >> 20) + "MiB of heap in use, API requests: " + api.requestCounts());
+	}
+
+	private static long converged() {
+		return api.list("foos").stream().filter(foo -> {
+			var metadata = foo.getAsJsonObject("metadata");
+			var status = foo.getAsJsonObject("status");
+			return status != null && status.has("observedGeneration")
+					&& status.get("observedGeneration").getAsLong() == metadata.get("generation").getAsLong()
+					&& api.get("deployments", metadata.get("namespace").getAsString(),
+							"deployment-" + metadata.get("name").getAsString()) != null;
+		}).count();
+	}
+
+	private static JsonObject foo(String namespace, String name) {
+		var metadata = new JsonObject();
+		metadata.addProperty("namespace", namespace);
+		metadata.addProperty("name", name);
+		var spec = new JsonObject();
+		spec.addProperty("name", name);
+		var foo = new JsonObject();
+		foo.addProperty("apiVersion", "spring.io/v1");
+		foo.addProperty("kind", "Foo");
+		foo.add("metadata", metadata);
+		foo.add("spec", spec);
+		return foo;
+	}
+
+	private static FakeKubernetesApiServer start() {
+		try {
+			var latency = Duration.parse(System.getProperty("load.latency", "PT0.002S"));
+			var errorRate = Double.parseDouble(System.getProperty("load.errorRate", "0"));
+			return new FakeKubernetesApiServer().latency(latency).errors(errorRate, 500);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
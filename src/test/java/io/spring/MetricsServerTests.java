@@ -0,0 +1,55 @@
+package io.spring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsServerTests {
+
+	private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void servesTheScrapeAndTheHealthCheck() throws Exception {
+		Counter.builder("foo.reconcile.test").register(this.meterRegistry).increment();
+		try (var server = new MetricsServer(properties(0), this.meterRegistry, null)) {
+			var scrape = get(server, MetricsServer.PROMETHEUS_PATH);
+			assertThat(scrape.statusCode()).isEqualTo(200);
+			assertThat(scrape.headers().firstValue("Content-Type")).hasValueSatisfying(
+					contentType -> assertThat(contentType).startsWith("text/plain; version=0.0.4"));
+			assertThat(scrape.body()).contains("foo_reconcile_test_total 1.0");
+
+			var health = get(server, MetricsServer.HEALTH_PATH);
+			assertThat(health.statusCode()).isEqualTo(200);
+			assertThat(health.body()).isEqualTo("{\"status\":\"UP\"}");
+		}
+	}
+
+	@Test
+	void aNegativePortServesNothing() throws Exception {
+		try (var server = new MetricsServer(properties(-1), this.meterRegistry, null)) {
+			assertThat(server.port()).isEqualTo(-1);
+		}
+	}
+
+	private HttpResponse<String> get(MetricsServer server, String path) throws Exception {
+		var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path)).build();
+		return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static FooControllerProperties.Metrics properties(int port) {
+		var properties = new FooControllerProperties.Metrics();
+		properties.setPort(port);
+		return properties;
+	}
+
+}
@@ -0,0 +1,77 @@
+package io.spring;
+
+import com.google.protobuf.ByteString;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.proto.Meta;
+import io.kubernetes.client.proto.V1;
+import io.kubernetes.client.proto.V1Coordination;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtobufListerTests {
+
+	private final JSON json = new JSON();
+
+	@Test
+	void aConfigMapComesOutTheSameAsFromJson() {
+		var metadata = Meta.ObjectMeta.newBuilder().setNamespace("default").setName("configmap-demo")
+				.setUid("5678").setResourceVersion("42")
+				.setCreationTimestamp(Meta.Time.newBuilder().setSeconds(1700000000))
+				.putLabels("app.kubernetes.io/managed-by", "foo-controller").putAnnotations("foo", "bar")
+				.addOwnerReferences(Meta.OwnerReference.newBuilder().setApiVersion("spring.io/v1").setKind("Foo")
+						.setName("demo").setUid("1234").setController(true).setBlockOwnerDeletion(true));
+		var configMap = V1.ConfigMap.newBuilder().setMetadata(metadata).putData("application.properties", "a=b")
+				.putBinaryData("logo.png", ByteString.copyFrom(new byte[] { 1, 2, 3 })).setImmutable(true).build();
+
+		V1ConfigMap fromJson = this.json.deserialize("""
+				{"metadata":{"namespace":"default","name":"configmap-demo","uid":"5678","resourceVersion":"42",
+				  "creationTimestamp":"2023-11-14T22:13:20Z",
+				  "labels":{"app.kubernetes.io/managed-by":"foo-controller"},"annotations":{"foo":"bar"},
+				  "ownerReferences":[{"apiVersion":"spring.io/v1","kind":"Foo","name":"demo","uid":"1234",
+				    "controller":true,"blockOwnerDeletion":true}]},
+				 "data":{"application.properties":"a=b"},"binaryData":{"logo.png":"AQID"},"immutable":true}
+				""", V1ConfigMap.class);
+		var fromProtobuf = ProtobufLister.configMap(configMap);
+		// byte[] has no equals of its own
+		assertThat(fromProtobuf.getBinaryData().get("logo.png")).containsExactly(1, 2, 3);
+		assertThat(fromProtobuf.binaryData(null)).isEqualTo(fromJson.binaryData(null));
+	}
+
+	@Test
+	void unsetFieldsStayNull() {
+		var configMap = ProtobufLister.configMap(V1.ConfigMap.newBuilder()
+				.setMetadata(Meta.ObjectMeta.newBuilder().setName("empty")).build());
+		assertThat(configMap).isEqualTo(this.json.deserialize("{\"metadata\":{\"name\":\"empty\"}}",
+				V1ConfigMap.class));
+		assertThat(configMap.getData()).isNull();
+		assertThat(configMap.getMetadata().getLabels()).isNull();
+	}
+
+	@Test
+	void aLeaseKeepsItsMicrosecondRenewTime() {
+		var renewTime = Meta.MicroTime.newBuilder().setSeconds(1700000000).setNanos(123456000);
+		var lease = V1Coordination.Lease.newBuilder()
+				.setMetadata(Meta.ObjectMeta.newBuilder().setNamespace("default").setName("foo-controller-a")
+						.putLabels(Sharding.MEMBER_LABEL, "true"))
+				.setSpec(V1Coordination.LeaseSpec.newBuilder().setHolderIdentity("a").setLeaseDurationSeconds(15)
+						.setAcquireTime(renewTime).setRenewTime(renewTime).setLeaseTransitions(0))
+				.build();
+
+		V1Lease fromJson = this.json.deserialize("""
+				{"metadata":{"namespace":"default","name":"foo-controller-a",
+				  "labels":{"foo-controller.spring.io/shard-member":"true"}},
+				 "spec":{"holderIdentity":"a","leaseDurationSeconds":15,"acquireTime":"2023-11-14T22:13:20.123456Z",
+				  "renewTime":"2023-11-14T22:13:20.123456Z","leaseTransitions":0}}
+				""", V1Lease.class);
+		var fromProtobuf = ProtobufLister.lease(lease);
+		assertThat(fromProtobuf.getSpec().getRenewTime().toInstant())
+				.isEqualTo(fromJson.getSpec().getRenewTime().toInstant());
+		assertThat(fromProtobuf.getMetadata()).isEqualTo(fromJson.getMetadata());
+		assertThat(fromProtobuf.getSpec().getHolderIdentity()).isEqualTo("a");
+		assertThat(fromProtobuf.getSpec().getLeaseDurationSeconds()).isEqualTo(15);
+	}
+
+}
@@ -0,0 +1,47 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTests {
+
+	@Test
+	void conflictsAreRetriedThroughTheRateLimiter() {
+		var result = RetryPolicy.forFailure("default/demo", new ApiException(409, "conflict"));
+		assertThat(result.isRequeue()).isTrue();
+		assertThat(result.getRequeueAfter()).isNull();
+	}
+
+	@Test
+	void throttlingHonorsRetryAfter() {
+		var exception = new ApiException("slow down", 429, Map.of("retry-after", List.of("7")), "");
+		var result = RetryPolicy.forFailure("default/demo", exception);
+		assertThat(result.isRequeue()).isTrue();
+		assertThat(result.getRequeueAfter()).isBetween(Duration.ofSeconds(7), Duration.ofMillis(7701));
+	}
+
+	@Test
+	void validationErrorsAreNotRetried() {
+		assertThat(RetryPolicy.forFailure("default/demo", new ApiException(422, "invalid")).isRequeue()).isFalse();
+	}
+
+	@Test
+	void backoffGrowsUpToTheCapAndResetsOnForget() {
+		var limiter = new JitteredExponentialRateLimiter<String>(Duration.ofMillis(5), Duration.ofSeconds(1), 0.2);
+		assertThat(limiter.when("a")).isBetween(Duration.ofMillis(4), Duration.ofMillis(5));
+		assertThat(limiter.when("a")).isBetween(Duration.ofMillis(8), Duration.ofMillis(10));
+		for (var i = 0; i < 100; i++) {
+			assertThat(limiter.when("a")).isLessThanOrEqualTo(Duration.ofSeconds(1));
+		}
+		assertThat(limiter.numRequeues("a")).isEqualTo(102);
+		limiter.forget("a");
+		assertThat(limiter.when("a")).isLessThanOrEqualTo(Duration.ofMillis(5));
+	}
+
+}
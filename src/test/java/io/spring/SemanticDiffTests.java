@@ -0,0 +1,40 @@
+package io.spring;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticDiffTests {
+
+	@Test
+	void serverDefaultsDoNotCountAsDrift() {
+		var desired = JsonParser.parseString("""
+				{"metadata": {"name": "deployment-demo", "labels": {"app": "nginx"}},
+				 "spec": {"replicas": 2, "template": {"spec": {"containers": [{"name": "nginx", "ports": [{"containerPort": 80}]}]}}}}
+				""");
+		var actual = JsonParser.parseString("""
+				{"metadata": {"name": "deployment-demo", "uid": "1234", "resourceVersion": "42", "labels": {"app": "nginx"}},
+				 "spec": {"replicas": 2, "strategy": {"type": "RollingUpdate"},
+				          "template": {"spec": {"containers": [{"name": "nginx", "imagePullPolicy": "Always",
+				                                                "ports": [{"containerPort": 80, "protocol": "TCP"}]}]}}},
+				 "status": {"readyReplicas": 2}}
+				""");
+		assertThat(SemanticDiff.matches(desired, actual)).isTrue();
+	}
+
+	@Test
+	void changedOrMissingFieldsAreDrift() {
+		var desired = JsonParser.parseString("""
+				{"spec": {"replicas": 2, "template": {"spec": {"containers": [{"name": "nginx"}]}}}}
+				""");
+		assertThat(SemanticDiff.matches(desired, JsonParser.parseString("""
+				{"spec": {"replicas": 3, "template": {"spec": {"containers": [{"name": "nginx"}]}}}}
+				"""))).isFalse();
+		assertThat(SemanticDiff.matches(desired, JsonParser.parseString("""
+				{"spec": {"replicas": 2, "template": {"spec": {"containers": [{"name": "nginx"}, {"name": "sidecar"}]}}}}
+				"""))).isFalse();
+		assertThat(SemanticDiff.matches(desired, JsonParser.parseString("{\"spec\": {}}"))).isFalse();
+	}
+
+}
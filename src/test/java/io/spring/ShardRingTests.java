@@ -0,0 +1,45 @@
+package io.spring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRingTests {
+
+	@Test
+	void keysAreSplitEvenly() {
+		var ring = new ShardRing(List.of("a", "b", "c"), 64);
+		var owned = new HashMap<String, Integer>();
+		for (var i = 0; i < 30_000; i++) {
+			owned.merge(ring.ownerOf("default/foo-" + i), 1, Integer::sum);
+		}
+		assertThat(owned).containsOnlyKeys("a", "b", "c");
+		for (var count : owned.values()) {
+			assertThat(count).isBetween(7_500, 12_500);
+		}
+	}
+
+	@Test
+	void aNewMemberOnlyTakesKeysAndTakesItsShare() {
+		var before = new ShardRing(List.of("a", "b", "c"), 64);
+		var after = new ShardRing(List.of("a", "b", "c", "d"), 64);
+		var moved = 0;
+		for (var i = 0; i < 30_000; i++) {
+			var key = "default/foo-" + i;
+			if (!before.ownerOf(key).equals(after.ownerOf(key))) {
+				assertThat(after.ownerOf(key)).isEqualTo("d");
+				moved++;
+			}
+		}
+		assertThat(moved).isBetween(5_000, 10_000);
+	}
+
+	@Test
+	void anEmptyRingOwnsNothing() {
+		assertThat(new ShardRing(List.of(), 64).ownerOf("default/foo")).isNull();
+	}
+
+}
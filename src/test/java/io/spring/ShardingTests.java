@@ -0,0 +1,119 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseList;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.generic.GenericKubernetesApi;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardingTests {
+
+	private final FakeKubernetesApiServer server = new FakeKubernetesApiServer();
+
+	private final GenericKubernetesApi<V1Lease, V1LeaseList> leases = new GenericKubernetesApi<>(V1Lease.class,
+			V1LeaseList.class, "coordination.k8s.io", "v1", "leases",
+			new ClientBuilder().setBasePath(this.server.url()).build());
+
+	ShardingTests() throws IOException {
+	}
+
+	@AfterEach
+	void close() {
+		this.server.close();
+	}
+
+	@Test
+	void withoutShardingEverythingIsOurs() {
+		var sharding = new Sharding(new FooControllerProperties.Sharding(), this.leases, new SimpleMeterRegistry());
+		sharding.start();
+		assertThat(sharding.owns(new Request("default", "foo"))).isTrue();
+		assertThat(this.server.requestCounts()).isEmpty();
+	}
+
+	@Test
+	void replicasSplitTheKeysAndTakeThemBackWhenOneLeaves() throws Exception {
+		var first = sharding("first");
+		var second = sharding("second");
+		var rebalances = new AtomicInteger();
+		first.onRebalance(rebalances::incrementAndGet);
+		first.start();
+		second.start();
+		// the second one sees the first right away, the first one sees the second on its next renewal
+		eventually(() -> rebalances.get() == 1);
+		assertThat(ownedBy(first)).isPositive();
+		assertThat(ownedBy(second)).isPositive();
+		for (var i = 0; i < 1000; i++) {
+			var request = new Request("default", "foo-" + i);
+			assertThat(first.owns(request)).isNotEqualTo(second.owns(request));
+		}
+
+		second.close();
+		eventually(() -> rebalances.get() == 2);
+		assertThat(ownedBy(first)).isEqualTo(1000);
+		first.close();
+	}
+
+	@Test
+	void leasesAbandonedLongAgoAreDeleted() throws Exception {
+		abandonedLease("crashed", Duration.ofHours(1));
+		abandonedLease("restarting", Duration.ofMinutes(1));
+		var sharding = sharding("first");
+		sharding.start();
+
+		assertThat(this.leases.get("default", "foo-controller-shard-crashed").getHttpStatusCode()).isEqualTo(404);
+		// it may yet come back: its keys are ours for now, but its lease is left alone
+		assertThat(this.leases.get("default", "foo-controller-shard-restarting").isSuccess()).isTrue();
+		assertThat(ownedBy(sharding)).isEqualTo(1000);
+		sharding.close();
+	}
+
+	private void abandonedLease(String identity, Duration expiredFor) throws ApiException {
+		var renewTime = OffsetDateTime.now().minusSeconds(15).minus(expiredFor);
+		this.leases.create(new V1Lease() //
+				.metadata(new V1ObjectMeta().namespace("default").name("foo-controller-shard-" + identity)
+						.putLabelsItem(Sharding.MEMBER_LABEL, "true")) //
+				.spec(new V1LeaseSpec().holderIdentity(identity).leaseDurationSeconds(15).acquireTime(renewTime)
+						.renewTime(renewTime)))
+				.throwsApiException();
+	}
+
+	private Sharding sharding(String identity) {
+		var properties = new FooControllerProperties.Sharding();
+		properties.setEnabled(true);
+		properties.setIdentity(identity);
+		properties.setRenewPeriod(Duration.ofMillis(100));
+		return new Sharding(properties, this.leases, new SimpleMeterRegistry());
+	}
+
+	private static int ownedBy(Sharding sharding) {
+		var owned = 0;
+		for (var i = 0; i < 1000; i++) {
+			owned += sharding.owns(new Request("default", "foo-" + i)) ? 1 : 0;
+		}
+		return owned;
+	}
+
+	private static void eventually(BooleanSupplier condition) throws InterruptedException {
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(50);
+		}
+	}
+
+}
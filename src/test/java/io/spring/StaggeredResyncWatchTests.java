@@ -0,0 +1,66 @@
+package io.spring;
+
+import io.kubernetes.client.extended.controller.reconciler.Request;
+import io.kubernetes.client.extended.workqueue.DelayingQueue;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.spring.models.V1Foo;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StaggeredResyncWatchTests {
+
+	@SuppressWarnings("unchecked")
+	private final DelayingQueue<Request> queue = mock(DelayingQueue.class);
+
+	@Test
+	void realChangesAreEnqueuedRightAway() {
+		var watch = new StaggeredResyncWatch<>(V1Foo.class, this.queue, StaggeredResyncWatch::requestFor,
+				foo -> true, Duration.ofMinutes(10));
+		watch.getResourceEventHandler().onUpdate(foo("demo", "1"), foo("demo", "2"));
+		verify(this.queue).add(new Request("default", "demo"));
+		verify(this.queue, never()).addAfter(any(), any());
+	}
+
+	@Test
+	void resyncsAreSpreadOverThePeriod() {
+		var period = Duration.ofMinutes(10);
+		var watch = new StaggeredResyncWatch<>(V1Foo.class, this.queue, StaggeredResyncWatch::requestFor,
+				foo -> true, period);
+		for (var i = 0; i < 1000; i++) {
+			var foo = foo("demo-" + i, "1");
+			watch.getResourceEventHandler().onUpdate(foo, foo);
+		}
+		var delays = ArgumentCaptor.forClass(Duration.class);
+		verify(this.queue, times(1000)).addAfter(any(), delays.capture());
+		var buckets = new int[10];
+		delays.getAllValues().forEach(delay -> {
+			assertThat(delay).isLessThan(period);
+			buckets[(int) (delay.toMillis() / TimeUnit.MINUTES.toMillis(1))]++;
+		});
+		// 100 per minute if perfectly even
+		for (var count : buckets) {
+			assertThat(count).isBetween(50, 150);
+		}
+	}
+
+	@Test
+	void filteredResyncsNeverReachTheQueue() {
+		var watch = new StaggeredResyncWatch<>(V1Foo.class, this.queue, StaggeredResyncWatch::requestFor,
+				foo -> false, Duration.ofMinutes(10));
+		var foo = foo("demo", "1");
+		watch.getResourceEventHandler().onUpdate(foo, foo);
+		verifyNoInteractions(this.queue);
+	}
+
+	private static V1Foo foo(String name, String resourceVersion) {
+		return new V1Foo().metadata(new V1ObjectMeta().namespace("default").name(name).resourceVersion(resourceVersion));
+	}
+
+}
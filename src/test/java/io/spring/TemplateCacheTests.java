@@ -0,0 +1,37 @@
+package io.spring;
+
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateCacheTests {
+
+	private final TemplateCache templateCache = new TemplateCache(new JSON()) //
+			.register(V1ConfigMap.class, new ClassPathResource("configmap.yaml")) //
+			.register(V1Deployment.class, new ClassPathResource("deployment.yaml"));
+
+	@Test
+	void copiesAreIndependentOfEachOther() {
+		var first = this.templateCache.copyOf(V1ConfigMap.class);
+		first.getMetadata().setName("changed");
+		first.getData().put("index.html", "changed");
+		var second = this.templateCache.copyOf(V1ConfigMap.class);
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getMetadata().getName()).isEqualTo("index-html-configmap");
+		assertThat(second.getData().get("index.html")).contains("Hello, world!");
+	}
+
+	@Test
+	void deploymentTemplateSurvivesTheRoundTrip() {
+		var deployment = this.templateCache.copyOf(V1Deployment.class);
+		assertThat(deployment.getSpec().getReplicas()).isEqualTo(2);
+		assertThat(deployment.getSpec().getTemplate().getSpec().getVolumes()).hasSize(1);
+		assertThat(deployment.getSpec().getTemplate().getSpec().getContainers().get(0).getPorts().get(0)
+				.getContainerPort()).isEqualTo(80);
+	}
+
+}
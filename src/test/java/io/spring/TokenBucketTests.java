@@ -0,0 +1,39 @@
+package io.spring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+	@Test
+	void burstIsFreeAndThenTokensArriveAtTheConfiguredRate() {
+		var bucket = new TokenBucket(10, 5);
+		for (var i = 0; i < 5; i++) {
+			assertThat(bucket.reserve()).isZero();
+		}
+		// the sixth token is 100ms out, the seventh 200ms (minus what has elapsed since)
+		assertThat(bucket.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(bucket.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(150), TimeUnit.MILLISECONDS.toNanos(200));
+	}
+
+	@Test
+	void aTokenTooFarOutIsLeftForSomeoneElse() throws InterruptedException {
+		var bucket = new TokenBucket(10, 1);
+		assertThat(bucket.tryAcquire(0)).isTrue();
+		assertThat(bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(10))).isFalse(); // 100ms out
+		// not taken by the attempt above, so still the next one
+		assertThat(bucket.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	void zeroQpsMeansUnlimited() {
+		var bucket = new TokenBucket(0, 0);
+		for (var i = 0; i < 10_000; i++) {
+			assertThat(bucket.reserve()).isZero();
+		}
+	}
+
+}